@@ -0,0 +1,59 @@
+package halma;
+
+import java.util.Random;
+
+// Posições representativas usadas pelos benchmarks (determinísticas, para comparar entre versões)
+final class BenchmarkPositions {
+    private BenchmarkPositions() {
+    }
+
+    static HalmaBoard create(String name) {
+        switch (name) {
+            case "opening":
+                return new HalmaBoard();
+            case "midgame":
+                return selfPlay(new HalmaBoard(), 40, 42L);
+            case "endgame":
+                return crowdedEndgame();
+            default:
+                throw new IllegalArgumentException("Posicao desconhecida: " + name);
+        }
+    }
+
+    // Joga 'plies' lances aleatórios (semente fixa), preferindo os que avançam mais
+    static HalmaBoard selfPlay(HalmaBoard board, int plies, long seed) {
+        Random rnd = new Random(seed);
+        MoveBuffer buf = new MoveBuffer();
+        int player = 1;
+        for (int i = 0; i < plies; i++) {
+            int n = board.gerarTodosMovimentos(player, buf);
+            if (n == 0) break;
+            int best = rnd.nextInt(n);
+            for (int k = 0; k < 3; k++) {
+                int c = rnd.nextInt(n);
+                if (avanco(buf, c, player) > avanco(buf, best, player)) best = c;
+            }
+            board.moverPecaSequence(buf.toCoords(best), player);
+            player = 3 - player;
+        }
+        return board;
+    }
+
+    private static int avanco(MoveBuffer buf, int i, int player) {
+        int from = buf.getFrom(i), to = buf.getTo(i);
+        int gain = ((to & 7) + (to >>> 3)) - ((from & 7) + (from >>> 3));
+        return (player == 1) ? gain : -gain;
+    }
+
+    // Fim de jogo congestionado: as duas bases alvo quase cheias e o centro ocupado
+    private static HalmaBoard crowdedEndgame() {
+        HalmaBoard b = new HalmaBoard();
+        for (int y = 0; y < 8; y++) for (int x = 0; x < 8; x++) b.setCell(x, y, 0);
+
+        int[][] p1 = { {7, 7}, {6, 7}, {7, 6}, {5, 7}, {6, 6}, {7, 5}, {4, 7}, {5, 6}, {4, 5}, {3, 4} };
+        int[][] p2 = { {0, 0}, {1, 0}, {0, 1}, {2, 0}, {1, 1}, {0, 2}, {3, 0}, {2, 2}, {3, 3}, {4, 4} };
+        for (int[] c : p1) b.setCell(c[0], c[1], 1);
+        for (int[] c : p2) b.setCell(c[0], c[1], 2);
+        return b;
+    }
+}
@@ -0,0 +1,108 @@
+package halma;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Regras do HalmaBoard e custo de serialização, em posições de abertura, meio-jogo e final congestionado.
+// Execução: java -jar target/benchmarks.jar BoardBenchmark -rf json -rff board.json
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param({ "opening", "midgame", "endgame" })
+    public String position;
+
+    private HalmaBoard board;
+    private final MoveBuffer buffer = new MoveBuffer();
+    private int[] longestMove; // Movimento do Jogador 1 com o maior caminho (mais pulos)
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        board = BenchmarkPositions.create(position);
+
+        int n = board.gerarTodosMovimentos(1, buffer);
+        int best = 0;
+        for (int i = 1; i < n; i++) {
+            if (buffer.getPathLength(i) > buffer.getPathLength(best)) best = i;
+        }
+        longestMove = buffer.toCoords(best);
+        serialized = serialize(board);
+    }
+
+    @Benchmark
+    public void getValidMovesAllPieces(Blackhole bh) {
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                if (board.getCell(x, y) == 1) {
+                    List<java.awt.Point> moves = board.getValidMoves(1, x, y);
+                    bh.consume(moves);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int generateAllMoves() {
+        return board.gerarTodosMovimentos(1, buffer);
+    }
+
+    // Valida e aplica o movimento com mais saltos sobre uma cópia (o tabuleiro de referência não muda)
+    @Benchmark
+    public boolean validateSequence() {
+        return new HalmaBoard(board).moverPecaSequence(longestMove, 1);
+    }
+
+    @Benchmark
+    public void winDetection(Blackhole bh) {
+        bh.consume(board.verificarVencedor(1));
+        bh.consume(board.verificarVencedor(2));
+    }
+
+    @Benchmark
+    public HalmaBoard copyConstructor() {
+        return new HalmaBoard(board);
+    }
+
+    @Benchmark
+    public byte[] serializeBoard() throws IOException {
+        return serialize(board);
+    }
+
+    @Benchmark
+    public Object deserializeBoard() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+
+    private static byte[] serialize(HalmaBoard b) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(b);
+        }
+        return bytes.toByteArray();
+    }
+}
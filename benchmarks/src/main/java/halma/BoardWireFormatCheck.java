@@ -0,0 +1,142 @@
+package halma;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Verificação do formato Externalizable do HalmaBoard: os bitboards voltam iguais depois da ida e volta
+// pela serialização Java (o caminho do RMI), o payload de writeExternal tem no máximo 17 bytes e
+// readExternal recusa versão desconhecida, casas ocupadas pelos dois jogadores e número de peças diferente
+// de PECAS_POR_JOGADOR.
+// Termina com código 1 se alguma verificação falhar.
+//
+// Execução: java -cp target/benchmarks.jar halma.BoardWireFormatCheck
+public class BoardWireFormatCheck {
+    private static final int MAX_PAYLOAD = 17; // 1 byte de versão + 2 longs
+    private static final byte VERSAO = 1;
+
+    private static int falhas = 0;
+
+    public static void main(String[] args) throws Exception {
+        for (Map.Entry<String, HalmaBoard> e : posicoes().entrySet()) {
+            String nome = e.getKey();
+            HalmaBoard board = e.getValue();
+
+            HalmaBoard lido = idaEVolta(board);
+            verificar(lido.getOcupacao(1) == board.getOcupacao(1) && lido.getOcupacao(2) == board.getOcupacao(2),
+                    nome + ": bitboards diferentes depois da ida e volta");
+            verificar(lido.getPecasNoAlvo(1) == board.getPecasNoAlvo(1)
+                            && lido.getDistanciaAoAlvo(2) == board.getDistanciaAoAlvo(2),
+                    nome + ": contadores nao recalculados na leitura");
+
+            int payload = payload(board);
+            verificar(payload <= MAX_PAYLOAD, nome + ": payload de " + payload + " bytes (maximo " + MAX_PAYLOAD + ")");
+            System.out.println(nome + ": ok (" + payload + " bytes)");
+        }
+
+        verificarRecusa(cru((byte) 0, HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_BOTTOM_RIGHT), "versao 0");
+        verificarRecusa(cru((byte) (VERSAO + 1), HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_BOTTOM_RIGHT), "versao futura");
+        verificarRecusa(cru(VERSAO, HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_TOP_LEFT | 1L << 63), "casas sobrepostas");
+        verificarRecusa(cru(VERSAO, -1L, 1L), "casas sobrepostas (tabuleiro cheio)");
+        verificarRecusa(cru(VERSAO, 0L, 0L), "vazio");
+        verificarRecusa(cru(VERSAO, 1L, 1L << 63), "uma peca por jogador");
+        verificarRecusa(cru(VERSAO, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL), "cheio (32 + 32 pecas)");
+        verificarRecusa(cru(VERSAO, HalmaBoard.BASE_TOP_LEFT | 1L << 36, HalmaBoard.BASE_BOTTOM_RIGHT), "11 pecas do P1");
+        verificarRecusa(cru(VERSAO, HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_BOTTOM_RIGHT & ~(1L << 63)), "9 pecas do P2");
+
+        if (falhas > 0) {
+            System.out.println(falhas + " verificacao(oes) falharam");
+            System.exit(1);
+        }
+        System.out.println("Formato do tabuleiro ok");
+    }
+
+    // Posições da abertura ao fim de jogo, todas com PECAS_POR_JOGADOR peças de cada lado
+    // (a casa 63, do bit de sinal, é ocupada pelo P2 na abertura)
+    private static Map<String, HalmaBoard> posicoes() {
+        Map<String, HalmaBoard> m = new LinkedHashMap<>();
+        for (String nome : new String[] {"opening", "midgame", "endgame"}) m.put(nome, BenchmarkPositions.create(nome));
+        for (long semente = 1; semente <= 5; semente++) {
+            m.put("selfplay-" + semente, BenchmarkPositions.selfPlay(new HalmaBoard(), 25 * (int) semente, semente));
+        }
+        m.put("bases trocadas", HalmaBoard.deOcupacao(HalmaBoard.BASE_BOTTOM_RIGHT, HalmaBoard.BASE_TOP_LEFT));
+        return m;
+    }
+
+    private static HalmaBoard idaEVolta(HalmaBoard board) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(board);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (HalmaBoard) in.readObject();
+        }
+    }
+
+    // Bytes escritos pelo próprio writeExternal, sem os cabeçalhos da serialização Java
+    private static int payload(HalmaBoard board) throws IOException {
+        SaidaDados out = new SaidaDados(new ByteArrayOutputStream());
+        board.writeExternal(out);
+        return out.size();
+    }
+
+    private static byte[] cru(byte versao, long p1, long p2) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(versao);
+            out.writeLong(p1);
+            out.writeLong(p2);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void verificarRecusa(byte[] dados, String caso) throws IOException {
+        try {
+            new HalmaBoard().readExternal(new EntradaDados(new ByteArrayInputStream(dados)));
+            verificar(false, caso + ": readExternal aceitou o payload");
+        } catch (InvalidObjectException e) {
+            System.out.println(caso + ": recusado (" + e.getMessage() + ")");
+        }
+    }
+
+    private static void verificar(boolean condicao, String falha) {
+        if (!condicao) {
+            falhas++;
+            System.out.println("FALHA " + falha);
+        }
+    }
+
+    // ObjectOutput/ObjectInput só com os tipos primitivos, que é o que o HalmaBoard usa
+    private static final class SaidaDados extends DataOutputStream implements ObjectOutput {
+        SaidaDados(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void writeObject(Object obj) {
+            throw new UnsupportedOperationException("HalmaBoard nao escreve objetos");
+        }
+    }
+
+    private static final class EntradaDados extends DataInputStream implements ObjectInput {
+        EntradaDados(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public Object readObject() {
+            throw new UnsupportedOperationException("HalmaBoard nao le objetos");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package halma;
+
+import java.util.Locale;
+
+// Escalabilidade da busca paralela (Lazy SMP) do HalmaEngine com 1, 2, 4 e 8 threads.
+// Para cada número de threads e cada posição mede:
+//  - nós por segundo com orçamento fixo de tempo (e a profundidade alcançada)
+//  - tempo até completar uma profundidade fixa (speedup = tempo com 1 thread / tempo com N)
+// A tabela de transposição é limpa antes de cada medida, para que uma não aproveite a anterior.
+//
+// Execução: java -cp target/benchmarks.jar halma.EngineSpeedupBenchmark [tempoMs] [profundidade] [threads...]
+public class EngineSpeedupBenchmark {
+    private static final String[] POSICOES = { "opening", "midgame", "endgame" };
+
+    public static void main(String[] args) {
+        long tempoMs = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        int profundidade = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int[] threads = { 1, 2, 4, 8 };
+        if (args.length > 2) {
+            threads = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) threads[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf(Locale.ROOT, "Nucleos disponiveis: %d | tempo fixo: %d ms | profundidade fixa: %d%n",
+                Runtime.getRuntime().availableProcessors(), tempoMs, profundidade);
+        System.out.printf(Locale.ROOT, "%-8s %7s %14s %10s %14s %9s%n",
+                "posicao", "threads", "nos/s", "prof.", "t(prof) ms", "speedup");
+
+        for (String nome : POSICOES) {
+            HalmaBoard board = BenchmarkPositions.create(nome);
+            double base = 0;
+            for (int t : threads) {
+                HalmaEngine engine = new HalmaEngine(22, t);
+
+                // Aquecimento do JIT (descartado)
+                engine.pensar(board, 1, 300);
+
+                engine.limparTabela();
+                long inicio = System.nanoTime();
+                engine.pensar(board, 1, tempoMs);
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+                double nps = engine.getUltimosNos() / segundos;
+                int profAlcancada = engine.getUltimaProfundidade();
+
+                engine.limparTabela();
+                inicio = System.nanoTime();
+                engine.pensar(board, 1, 3_600_000L, profundidade); // Sem limite prático de tempo
+                double ms = (System.nanoTime() - inicio) / 1e6;
+                if (t == threads[0]) base = ms;
+
+                System.out.printf(Locale.ROOT, "%-8s %7d %14.0f %10d %14.1f %9.2f%n",
+                        nome, t, nps, profAlcancada, ms, base / ms);
+            }
+        }
+        System.exit(0); // Threads auxiliares dos motores são daemon, mas encerra explicitamente
+    }
+}
@@ -0,0 +1,87 @@
+package halma;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Tempo de ida e volta (RTT) por chamada RMI em localhost, com a fábrica de sockets padrão do JDK
+// (como o servidor e os clientes exportavam antes) e com a HalmaSocketFactory (configurada pelas mesmas
+// propriedades -Dhalma.rmi.* do jogo). Cada chamada devolve o array recebido, em vários tamanhos:
+// 16 bytes é o tamanho de um lance, 1-16 KiB o de lotes de eventos e snapshots.
+// Mesmo no mesmo processo o RMI passa pelo TCP de loopback, então a medida inclui a pilha de rede inteira.
+//
+// Execução: java -cp target/benchmarks.jar halma.RmiRttBenchmark [chamadas] [tamanhos...]
+public class RmiRttBenchmark {
+    private static final int RODADAS = 10;
+
+    public interface Eco extends Remote {
+        byte[] eco(byte[] dados) throws RemoteException;
+    }
+
+    static final class EcoImpl implements Eco {
+        @Override
+        public byte[] eco(byte[] dados) {
+            return dados;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int chamadas = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int[] tamanhos = { 16, 1024, 16 * 1024, 128 * 1024 };
+        if (args.length > 1) {
+            tamanhos = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) tamanhos[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        HalmaSocketFactory sockets = HalmaSocketFactory.fromSystemProperties();
+        EcoImpl padrao = new EcoImpl(), ajustada = new EcoImpl();
+        Eco stubPadrao = (Eco) UnicastRemoteObject.exportObject(padrao, 0);
+        Eco stubAjustada = (Eco) UnicastRemoteObject.exportObject(ajustada, 0, sockets, sockets);
+
+        System.out.printf(Locale.ROOT, "Chamadas por medida: %d | %s%n", chamadas, sockets);
+        System.out.printf(Locale.ROOT, "%-9s %9s %10s %10s %10s %12s%n",
+                "fabrica", "bytes", "media us", "p50 us", "p99 us", "chamadas/s");
+
+        for (int tamanho : tamanhos) {
+            byte[] dados = new byte[tamanho];
+            // Aquece as duas e mede em rodadas alternadas, para que nenhuma leve vantagem do JIT ou do GC
+            medir(stubPadrao, dados, Math.max(1000, chamadas / 10), new long[0], 0);
+            medir(stubAjustada, dados, Math.max(1000, chamadas / 10), new long[0], 0);
+            long[] nsPadrao = new long[chamadas], nsAjustada = new long[chamadas];
+            int porRodada = chamadas / RODADAS;
+            for (int r = 0; r < RODADAS; r++) {
+                int n = (r == RODADAS - 1) ? chamadas - r * porRodada : porRodada;
+                medir(stubPadrao, dados, n, nsPadrao, r * porRodada);
+                medir(stubAjustada, dados, n, nsAjustada, r * porRodada);
+            }
+            imprimir("padrao", tamanho, nsPadrao);
+            imprimir("ajustada", tamanho, nsAjustada);
+        }
+
+        UnicastRemoteObject.unexportObject(padrao, true);
+        UnicastRemoteObject.unexportObject(ajustada, true);
+        System.exit(0); // Threads do RMI não são daemon
+    }
+
+    // Grava os nanossegundos de cada chamada em ns[de..de+chamadas) (se couberem)
+    private static void medir(Eco eco, byte[] dados, int chamadas, long[] ns, int de) throws RemoteException {
+        for (int i = 0; i < chamadas; i++) {
+            long inicio = System.nanoTime();
+            byte[] volta = eco.eco(dados);
+            long t = System.nanoTime() - inicio;
+            if (de + i < ns.length) ns[de + i] = t;
+            if (volta.length != dados.length) throw new IllegalStateException("Resposta truncada");
+        }
+    }
+
+    private static void imprimir(String fabrica, int tamanho, long[] ns) {
+        Arrays.sort(ns);
+        double total = 0;
+        for (long n : ns) total += n;
+        double media = total / ns.length;
+        System.out.printf(Locale.ROOT, "%-9s %9d %10.1f %10.1f %10.1f %12.0f%n", fabrica, tamanho,
+                media / 1e3, ns[ns.length / 2] / 1e3, ns[(int) (ns.length * 0.99)] / 1e3, 1e9 / media);
+    }
+}
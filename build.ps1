@@ -47,7 +47,7 @@ try {
 	Write-Warning "Error while attempting to detect/stop server processes: $_"
 }
 
-$src = Get-ChildItem -Recurse -Filter *.java | Where-Object { $_.FullName -notmatch 'root_backup_OLD' } | ForEach-Object { $_.FullName }
+$src = Get-ChildItem -Recurse -Filter *.java | Where-Object { $_.FullName -notmatch 'root_backup_OLD' -and $_.FullName -notmatch '[\\/]benchmarks[\\/]' } | ForEach-Object { $_.FullName }
 if ($src.Count -eq 0) { Write-Error "No .java files found"; exit 1 }
 
 javac -d . $src
@@ -0,0 +1,152 @@
+package halma;
+
+import java.awt.Point;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// Posição imutável do tabuleiro, com a versão em que foi publicada.
+// Servidor e cliente publicam cada posição nova por um AtomicReference<BoardSnapshot>: quem lê
+// (EDT, threads de callback, bots, espectadores) pega a referência atual e consulta sem lock e sem cópia.
+// Um movimento não altera o snapshot: mover() devolve um novo, com a versão seguinte.
+// As regras são as mesmas do HalmaBoard (tabelas e validação estáticas compartilhadas).
+public final class BoardSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final BoardSnapshot INICIAL =
+            new BoardSnapshot(0, HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_BOTTOM_RIGHT);
+
+    private final long versao;
+    private final long p1; // Ocupação do Jogador 1
+    private final long p2; // Ocupação do Jogador 2
+
+    // Derivados dos bitboards (não vão para a rede; readResolve os recalcula)
+    private final transient int p1NoAlvo, p2NoAlvo;
+    private final transient int p1Distancia, p2Distancia;
+
+    BoardSnapshot(long versao, long p1, long p2) {
+        this(versao, p1, p2,
+                Long.bitCount(p1 & HalmaBoard.BASE_BOTTOM_RIGHT), Long.bitCount(p2 & HalmaBoard.BASE_TOP_LEFT),
+                HalmaBoard.somaDistancias(p1, HalmaBoard.DISTANCIA_P1),
+                HalmaBoard.somaDistancias(p2, HalmaBoard.DISTANCIA_P2));
+    }
+
+    private BoardSnapshot(long versao, long p1, long p2, int p1NoAlvo, int p2NoAlvo,
+                          int p1Distancia, int p2Distancia) {
+        this.versao = versao;
+        this.p1 = p1;
+        this.p2 = p2;
+        this.p1NoAlvo = p1NoAlvo;
+        this.p2NoAlvo = p2NoAlvo;
+        this.p1Distancia = p1Distancia;
+        this.p2Distancia = p2Distancia;
+    }
+
+    // Posição atual de um HalmaBoard (mutável), com a versão indicada
+    public static BoardSnapshot de(HalmaBoard board, long versao) {
+        long a, b;
+        synchronized (board) {
+            a = board.getOcupacao(1);
+            b = board.getOcupacao(2);
+        }
+        return new BoardSnapshot(versao, a, b);
+    }
+
+    // Tabuleiro mutável com a mesma posição (para quem precisa simular lances, como o motor)
+    public HalmaBoard paraTabuleiro() {
+        return HalmaBoard.deOcupacao(p1, p2);
+    }
+
+    // Mesma posição publicada com outra versão (ex.: evento que não altera o tabuleiro)
+    public BoardSnapshot comVersao(long novaVersao) {
+        if (novaVersao == versao) return this;
+        return new BoardSnapshot(novaVersao, p1, p2, p1NoAlvo, p2NoAlvo, p1Distancia, p2Distancia);
+    }
+
+    // Aplica a sequência [x1, y1, x2, y2, ...] do jogador. Retorna o snapshot resultante, com a versão
+    // seguinte, ou null se a sequência for inválida (este snapshot continua o mesmo de qualquer forma).
+    public BoardSnapshot mover(int[] coords, int player) {
+        long own = (player == 1) ? p1 : (player == 2) ? p2 : 0L;
+        int destino = HalmaBoard.destinoSequencia(coords, own, p1 | p2);
+        if (destino < 0) return null;
+
+        int origem = (coords[1] << 3) | coords[0];
+        long move = (1L << origem) | (1L << destino);
+        if (player == 1) {
+            return new BoardSnapshot(versao + 1, p1 ^ move, p2,
+                    p1NoAlvo + noAlvo(HalmaBoard.BASE_BOTTOM_RIGHT, origem, destino), p2NoAlvo,
+                    p1Distancia - HalmaBoard.DISTANCIA_P1[origem] + HalmaBoard.DISTANCIA_P1[destino], p2Distancia);
+        }
+        return new BoardSnapshot(versao + 1, p1, p2 ^ move,
+                p1NoAlvo, p2NoAlvo + noAlvo(HalmaBoard.BASE_TOP_LEFT, origem, destino),
+                p1Distancia, p2Distancia - HalmaBoard.DISTANCIA_P2[origem] + HalmaBoard.DISTANCIA_P2[destino]);
+    }
+
+    // Variação das peças dentro do alvo quando uma peça sai de 'de' e entra em 'para'
+    private static int noAlvo(long alvo, int de, int para) {
+        return (int) ((alvo >>> para) & 1L) - (int) ((alvo >>> de) & 1L);
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public int getSize() {
+        return 8;
+    }
+
+    long getOcupacao(int player) {
+        return (player == 1) ? p1 : (player == 2) ? p2 : 0L;
+    }
+
+    public int getCell(int x, int y) {
+        if (!HalmaBoard.dentro(x, y)) return -1;
+        long b = HalmaBoard.bit(x, y);
+        if ((p1 & b) != 0) return 1;
+        if ((p2 & b) != 0) return 2;
+        return 0;
+    }
+
+    public List<Point> getValidMoves(int x, int y) {
+        List<Point> moves = new ArrayList<>();
+        if (HalmaBoard.dentro(x, y)) HalmaBoard.adicionarDestinos(HalmaBoard.destinosDiretos((y << 3) | x, p1 | p2), moves);
+        return moves;
+    }
+
+    // Mesmo contrato de HalmaBoard.gerarMovimentos: destinos da peça em (x, y) com o caminho completo
+    public int gerarMovimentos(int x, int y, MoveBuffer buf) {
+        buf.clear();
+        if (getCell(x, y) > 0) HalmaBoard.gerarMovimentosPeca((y << 3) | x, p1 | p2, buf);
+        return buf.size();
+    }
+
+    public int gerarTodosMovimentos(int player, MoveBuffer buf) {
+        buf.clear();
+        HalmaBoard.gerarTodosMovimentos(getOcupacao(player), p1 | p2, buf);
+        return buf.size();
+    }
+
+    public int getPecasNoAlvo(int player) {
+        return (player == 1) ? p1NoAlvo : (player == 2) ? p2NoAlvo : 0;
+    }
+
+    public int getDistanciaAoAlvo(int player) {
+        return (player == 1) ? p1Distancia : (player == 2) ? p2Distancia : 0;
+    }
+
+    public boolean verificarVencedor(int player) {
+        return getPecasNoAlvo(player) == HalmaBoard.PECAS_POR_JOGADOR;
+    }
+
+    // Recalcula os contadores e rejeita posições impossíveis vindas da rede
+    private Object readResolve() throws ObjectStreamException {
+        if ((p1 & p2) != 0) throw new InvalidObjectException("Tabuleiro invalido: casas ocupadas pelos dois jogadores");
+        if (Long.bitCount(p1) != HalmaBoard.PECAS_POR_JOGADOR || Long.bitCount(p2) != HalmaBoard.PECAS_POR_JOGADOR) {
+            throw new InvalidObjectException("Tabuleiro invalido: numero de pecas diferente de "
+                    + HalmaBoard.PECAS_POR_JOGADOR);
+        }
+        return new BoardSnapshot(versao, p1, p2);
+    }
+}
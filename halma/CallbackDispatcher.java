@@ -0,0 +1,125 @@
+package halma;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Entrega assíncrona dos callbacks RMI do servidor.
+// Cada cliente tem uma fila de saída (ClientOutbox) limitada, drenada por um pool compartilhado de tamanho
+// fixo (-Dhalma.callback.threads, padrão 64);
+// um vigia periódico derruba clientes cuja chamada em andamento excede o timeout.
+// Cada fila tem um circuit breaker: uma chamada que falha é repetida após uma espera crescente, e depois de
+// maxFalhas falhas seguidas o cliente deixa de ser chamado e segue para a desconexão.
+// Assim o ator da partida só aplica a mudança de estado e nenhum cliente lento segura os demais.
+class CallbackDispatcher {
+    enum OverflowPolicy { DROP_OLDEST, DISCONNECT }
+
+    // Fila com no máximo uma chamada remota em andamento, vigiada contra timeout
+    interface Vigiada {
+        boolean isChamadaExpirada(long now, long timeoutNanos);
+
+        void expirar();
+    }
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final Set<Vigiada> outboxes = ConcurrentHashMap.newKeySet();
+    private final HalmaMetrics metrics;
+
+    private final int queueCapacity;
+    private final long callTimeoutNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxFalhas;
+    private final long retryMillis;
+
+    CallbackDispatcher(HalmaMetrics metrics, int threads, int queueCapacity, long callTimeoutMillis,
+                       OverflowPolicy overflowPolicy, int maxFalhas, long retryMillis) {
+        this.metrics = metrics;
+        this.queueCapacity = queueCapacity;
+        this.callTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(callTimeoutMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.maxFalhas = maxFalhas;
+        this.retryMillis = retryMillis;
+
+        // No máximo 'threads' chamadas em andamento (ociosas saem após 60 s). Com todas presas em clientes
+        // lentos, as drenagens seguintes esperam na fila do pool e os eventos nas filas de cada cliente,
+        // até o timeout de leitura ou o vigia liberar as threads
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "halma-callback-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "halma-callback-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(50, callTimeoutMillis / 4);
+        watchdog.scheduleAtFixedRate(this::verificarTimeouts, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Configuração por propriedades de sistema (-Dhalma.callback.queueCapacity=..., etc.)
+    static CallbackDispatcher fromSystemProperties(HalmaMetrics metrics) {
+        int threads = Math.max(1, Integer.getInteger("halma.callback.threads", 64));
+        int capacity = Integer.getInteger("halma.callback.queueCapacity", 256);
+        long timeout = Long.getLong("halma.callback.timeoutMs", 5000L);
+        OverflowPolicy policy = OverflowPolicy.valueOf(
+                System.getProperty("halma.callback.overflow", OverflowPolicy.DISCONNECT.name()));
+        int maxFalhas = Integer.getInteger("halma.callback.maxFalhas", 3);
+        long retry = Long.getLong("halma.callback.retryMs", 100L);
+        return new CallbackDispatcher(metrics, threads, capacity, timeout, policy, maxFalhas, retry);
+    }
+
+    HalmaMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Cria a fila de saída de um cliente; 'onFalha' é chamado (fora de qualquer lock) se o cliente
+    // falhar, exceder o timeout ou estourar a fila com a política DISCONNECT
+    ClientOutbox criarOutbox(IHalmaClient client, Runnable onFalha) {
+        ClientOutbox outbox = new ClientOutbox(this, client, onFalha, queueCapacity, overflowPolicy,
+                maxFalhas, retryMillis);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    void agendar(Runnable r) {
+        executor.execute(r);
+    }
+
+    // Roda 'r' no pool depois de 'delayMillis' (o agendador do vigia só repassa a tarefa)
+    void agendarEm(Runnable r, long delayMillis) {
+        watchdog.schedule(() -> executor.execute(r), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Filas criadas fora de criarOutbox (ex.: espectadores) também passam pelo vigia
+    void vigiar(Vigiada outbox) {
+        outboxes.add(outbox);
+    }
+
+    void remover(Vigiada outbox) {
+        outboxes.remove(outbox);
+    }
+
+    private void verificarTimeouts() {
+        long now = System.nanoTime();
+        for (Vigiada o : outboxes) {
+            if (o.isChamadaExpirada(now, callTimeoutNanos)) o.expirar();
+        }
+    }
+
+    void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdownNow();
+    }
+}
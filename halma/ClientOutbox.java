@@ -0,0 +1,162 @@
+package halma;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+
+// Fila de saída de callbacks de um cliente. Enfileirar nunca bloqueia; a entrega é feita em ordem,
+// uma chamada por vez, por uma tarefa no pool do CallbackDispatcher.
+// Circuit breaker: uma chamada que falha volta para a frente da fila e é repetida após retryMillis * falhas;
+// na maxFalhas-ésima falha seguida (ou num timeout do vigia) o circuito abre: a fila é descartada, o cliente
+// não é mais chamado e onFalha o desconecta. Repetir é seguro para o estado (deltas repetidos são ignorados
+// pela versão); uma mensagem de chat pode aparecer duas vezes.
+class ClientOutbox implements CallbackDispatcher.Vigiada {
+    // Um callback a ser entregue ao cliente
+    interface Callback {
+        void invocar(IHalmaClient client) throws RemoteException;
+    }
+
+    private static final int MAX_BATCH = 32; // Devolve a thread ao pool após este número de entregas
+
+    private final CallbackDispatcher dispatcher;
+    private final IHalmaClient client;
+    private final Runnable onFalha;
+    private final int capacity;
+    private final CallbackDispatcher.OverflowPolicy policy;
+    private final int maxFalhas;
+    private final long retryMillis;
+    private int falhasSeguidas = 0; // Só a tarefa de entrega (uma por vez) mexe
+
+    // Callback com o nome do método de IHalmaClient (usado nas métricas)
+    private static final class Pendente {
+        final String metodo;
+        final Callback callback;
+
+        Pendente(String metodo, Callback callback) {
+            this.metodo = metodo;
+            this.callback = callback;
+        }
+    }
+
+    private final ArrayDeque<Pendente> queue = new ArrayDeque<>();
+    private boolean agendado = false;
+    private boolean fechado = false;
+    private volatile long chamadaIniciadaEm = 0L; // nanoTime da chamada em andamento (0 = nenhuma)
+    private volatile String chamadaAtual;          // Método da chamada em andamento
+
+    ClientOutbox(CallbackDispatcher dispatcher, IHalmaClient client, Runnable onFalha,
+                 int capacity, CallbackDispatcher.OverflowPolicy policy, int maxFalhas, long retryMillis) {
+        this.dispatcher = dispatcher;
+        this.client = client;
+        this.onFalha = onFalha;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.maxFalhas = Math.max(1, maxFalhas);
+        this.retryMillis = retryMillis;
+    }
+
+    IHalmaClient getClient() {
+        return client;
+    }
+
+    void enviar(String metodo, Callback callback) {
+        boolean estourou = false;
+        synchronized (this) {
+            if (fechado) return;
+            if (queue.size() >= capacity) {
+                if (policy == CallbackDispatcher.OverflowPolicy.DROP_OLDEST) {
+                    queue.poll(); // Descarta o mais antigo; um evento de estado perdido vira pedido de snapshot
+                } else {
+                    estourou = true;
+                }
+            }
+            if (!estourou) {
+                queue.offer(new Pendente(metodo, callback));
+                if (!agendado) {
+                    agendado = true;
+                    dispatcher.agendar(this::drenar);
+                }
+            }
+        }
+        if (estourou) falhar("fila cheia");
+    }
+
+    private void drenar() {
+        for (int i = 0; i < MAX_BATCH; i++) {
+            Pendente c;
+            synchronized (this) {
+                c = fechado ? null : queue.poll();
+                if (c == null) {
+                    agendado = false;
+                    return;
+                }
+            }
+            HalmaMetrics metrics = dispatcher.getMetrics();
+            chamadaAtual = c.metodo;
+            chamadaIniciadaEm = System.nanoTime();
+            try {
+                c.callback.invocar(client);
+            } catch (RemoteException | RuntimeException e) {
+                chamadaIniciadaEm = 0L;
+                if (isFechado()) return; // O vigia já contou o timeout e abriu o circuito
+                metrics.callbackFalha(c.metodo);
+                if (++falhasSeguidas >= maxFalhas) {
+                    metrics.circuitoAberto();
+                    falhar(falhasSeguidas + " falhas seguidas: " + e.getMessage());
+                    return;
+                }
+                synchronized (this) {
+                    queue.offerFirst(c); // Mantém a ordem: nada passa na frente da chamada que falhou
+                }
+                metrics.callbackRepetido();
+                dispatcher.agendarEm(this::drenar, retryMillis * falhasSeguidas); // 'agendado' continua true
+                return;
+            }
+            chamadaIniciadaEm = 0L;
+            falhasSeguidas = 0;
+            metrics.callbackOk(c.metodo);
+        }
+        // Ainda há itens: reagenda para não monopolizar uma thread do pool
+        dispatcher.agendar(this::drenar);
+    }
+
+    @Override
+    public boolean isChamadaExpirada(long now, long timeoutNanos) {
+        long inicio = chamadaIniciadaEm;
+        return inicio != 0L && now - inicio > timeoutNanos;
+    }
+
+    private synchronized boolean isFechado() {
+        return fechado;
+    }
+
+    // Chamado pelo vigia quando a chamada em andamento excede o timeout: a thread continua presa na chamada
+    // (até o timeout de leitura do socket), então não há como repetir; o circuito abre direto
+    @Override
+    public void expirar() {
+        if (isFechado()) return;
+        dispatcher.getMetrics().callbackTimeout(chamadaAtual);
+        dispatcher.getMetrics().circuitoAberto();
+        falhar("timeout");
+    }
+
+    // Fecha a fila (descartando pendências) e avisa o dono uma única vez
+    void falhar(String motivo) {
+        synchronized (this) {
+            if (fechado) return;
+            fechado = true;
+            queue.clear();
+        }
+        dispatcher.remover(this);
+        System.err.println("Callback falhou (" + motivo + "); desconectando cliente.");
+        dispatcher.agendar(onFalha);
+    }
+
+    // Fecha a fila sem acionar a rotina de falha (desconexão normal)
+    void fechar() {
+        synchronized (this) {
+            fechado = true;
+            queue.clear();
+        }
+        dispatcher.remover(this);
+    }
+}
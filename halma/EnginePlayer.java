@@ -0,0 +1,113 @@
+package halma;
+
+import java.awt.Point;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+// Jogador controlado pelo HalmaEngine, sentado no assento 2 de uma partida contra o computador.
+// Recebe os mesmos callbacks de um cliente remoto (pela ClientOutbox, sem RMI) e mantém seu próprio
+// tabuleiro a partir dos eventos. A busca roda no executor do motor, nunca na thread do callback,
+// sobre o snapshot imutável da posição (sem cópia).
+class EnginePlayer implements IHalmaClient {
+    static final String NOME = "Computador";
+
+    private final IHalmaServer server;
+    private final HalmaEngine engine;
+    private final Executor executor;
+    private final long tempoMs;
+    private final int playerId = 2;
+    private volatile int gameId;
+    private volatile long sessao; // 0 até o registro do assento voltar de adicionarComputador
+
+    private BoardSnapshot board = BoardSnapshot.INICIAL;
+    private int turno = 0; // Turno do último evento aplicado
+    private boolean pensando = false;
+
+    EnginePlayer(IHalmaServer server, HalmaEngine engine, Executor executor, long tempoMs) {
+        this.server = server;
+        this.engine = engine;
+        this.executor = executor;
+        this.tempoMs = tempoMs;
+    }
+
+    // O jogo pode começar (e mandar eventos) dentro de adicionarComputador, antes de a sessão chegar:
+    // a vez que ficou pendente é retomada aqui
+    synchronized void setRegistro(Registration reg) {
+        this.gameId = reg.getGameId();
+        this.sessao = reg.getSessao();
+        pensarSeForAVez();
+    }
+
+    @Override
+    public synchronized void atualizarEstado(GameStateEvent evento) {
+        if (evento.isSnapshot()) {
+            board = evento.getTabuleiro();
+        } else if (evento.getCaminho() != null) {
+            if (evento.getVersao() <= board.getVersao()) return;
+            int[] caminho = evento.getCaminho();
+            BoardSnapshot next = (evento.getVersao() == board.getVersao() + 1)
+                    ? board.mover(caminho, board.getCell(caminho[0], caminho[1])) : null;
+            if (next == null) {
+                executor.execute(this::pedirSnapshot);
+                return;
+            }
+            board = next;
+        } else {
+            board = board.comVersao(evento.getVersao());
+        }
+        turno = evento.getTurno();
+        pensarSeForAVez();
+    }
+
+    // Chamado com o lock. Um evento que chega durante uma busca só atualiza board/turno; quem decide se
+    // precisa de outra busca é o fim da busca atual.
+    private void pensarSeForAVez() {
+        if (turno != playerId || pensando || sessao == 0L) return;
+        pensando = true;
+        final BoardSnapshot posicao = board;
+        final int partida = gameId;
+        executor.execute(() -> jogar(posicao, partida));
+    }
+
+    private void jogar(BoardSnapshot posicao, int partida) {
+        int[] caminho = engine.pensar(posicao, playerId, tempoMs);
+        synchronized (this) {
+            pensando = false;
+            if (board.getVersao() != posicao.getVersao()) {
+                // Posição mudou durante a busca (ex.: partida reiniciada): pensa de novo sobre a atual
+                pensarSeForAVez();
+                return;
+            }
+        }
+        if (caminho == null) return;
+        List<Point> sequencia = new ArrayList<>(caminho.length / 2);
+        for (int i = 0; i < caminho.length; i += 2) sequencia.add(new Point(caminho[i], caminho[i + 1]));
+        try {
+            server.enviarMovimento(partida, playerId, sessao, sequencia);
+        } catch (RemoteException e) {
+            // Chamada local: não acontece
+        }
+    }
+
+    private void pedirSnapshot() {
+        try {
+            server.solicitarTabuleiro(gameId, playerId, sessao);
+        } catch (RemoteException e) {
+            // Chamada local: não acontece
+        }
+    }
+
+    @Override
+    public void receberMensagem(String msg) {
+    }
+
+    @Override
+    public void notificarInicioJogo(String p1Name, String p2Name) {
+    }
+
+    @Override
+    public void ping() {
+    }
+}
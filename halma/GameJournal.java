@@ -0,0 +1,381 @@
+package halma;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Journal (write-ahead, somente anexação) das partidas: entrada de jogador, início, lance aceito, fim e saída.
+// As partidas chamam os métodos de dentro do próprio ator (a ordem no arquivo é a ordem dos eventos), mas só
+// enfileiram o registro já codificado; uma thread escritora drena a fila em lotes (group commit), grava
+// com um FileChannel e faz fsync conforme a política. enviarMovimento nunca espera pelo disco.
+//
+// Na inicialização o arquivo é relido: as partidas em andamento são reconstruídas (tabuleiro, turno e
+// placar) e o journal é compactado num arquivo novo só com o estado delas. Um registro final incompleto
+// ou com CRC inválido (queda no meio de uma escrita) encerra a leitura; um registro íntegro que não se
+// repete (lance inválido) descarta só a partida dele.
+//
+// Registro: frame do NioProtocol [int tamanho][byte tipo][payload] seguido de [int crc32(tipo + payload)].
+class GameJournal {
+    enum FsyncPolicy { SEMPRE, INTERVALO, NUNCA }
+
+    private static final byte JOGADOR = 1;   // int gameId, byte assento, byte computador, String nome
+    private static final byte INICIO = 2;    // int gameId, long versao (tabuleiro novo)
+    private static final byte MOVIMENTO = 3; // int gameId, byte assento, caminho (varint n, n casas y * 8 + x)
+    private static final byte FIM = 4;       // int gameId, byte vencedor
+    private static final byte SAIDA = 5;     // int gameId, byte assento
+    private static final byte ENCERRADA = 6; // int gameId
+    private static final byte ESTADO = 7;    // int gameId, long versao, long p1, long p2, byte turno, int p1Moves, int p2Moves
+
+    private static final int MAX_REGISTRO = 1 << 16;
+    private static final byte[] PARAR = new byte[0];
+
+    private final Path arquivo;
+    private final FsyncPolicy politica;
+    private final long intervaloNanos;
+    private final BlockingQueue<byte[]> fila = new LinkedBlockingQueue<>();
+    private final List<PartidaRecuperada> recuperadas;
+    private FileChannel canal;
+    private Thread escritor;
+    private volatile boolean ativo;
+
+    // Estado de uma partida em andamento reconstruído do journal
+    static final class PartidaRecuperada {
+        final int gameId;
+        boolean contraComputador;
+        final String[] nomes = new String[3];
+        BoardSnapshot tabuleiro = BoardSnapshot.INICIAL;
+        int turno = 1;
+        int p1Moves, p2Moves;
+        boolean ativa;
+        boolean descartada; // Registro que não se repete: a partida não é recuperada
+
+        private PartidaRecuperada(int gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    // Journal desativado: todos os métodos de registro retornam sem fazer nada
+    private GameJournal() {
+        this.arquivo = null;
+        this.politica = FsyncPolicy.NUNCA;
+        this.intervaloNanos = 0;
+        this.recuperadas = Collections.emptyList();
+        this.ativo = false;
+    }
+
+    private GameJournal(Path arquivo, FsyncPolicy politica, long intervaloMillis) throws IOException {
+        this.arquivo = arquivo;
+        this.politica = politica;
+        this.intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMillis);
+        this.recuperadas = reler(arquivo);
+        compactar();
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.ativo = true;
+        this.escritor = new Thread(this::escrever, "halma-journal");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::fechar, "halma-journal-shutdown"));
+    }
+
+    static GameJournal desativado() {
+        return new GameJournal();
+    }
+
+    // Configuração por propriedades de sistema: -Dhalma.journal=arquivo (sem ela o journal fica desligado),
+    // -Dhalma.journal.fsync=SEMPRE|INTERVALO|NUNCA e -Dhalma.journal.fsyncMs=... (para INTERVALO)
+    static GameJournal fromSystemProperties() {
+        String caminho = System.getProperty("halma.journal");
+        if (caminho == null || caminho.isEmpty()) return desativado();
+        FsyncPolicy politica = FsyncPolicy.valueOf(
+                System.getProperty("halma.journal.fsync", FsyncPolicy.INTERVALO.name()));
+        try {
+            GameJournal j = new GameJournal(Path.of(caminho), politica, Long.getLong("halma.journal.fsyncMs", 100L));
+            System.out.println("Journal: " + caminho + " (fsync " + politica + ", "
+                    + j.recuperadas.size() + " partidas recuperadas)");
+            return j;
+        } catch (IOException e) {
+            System.err.println("Falha ao abrir o journal " + caminho + ": " + e.getMessage() + " (desativado)");
+            return desativado();
+        }
+    }
+
+    List<PartidaRecuperada> getRecuperadas() {
+        return recuperadas;
+    }
+
+    // --- Registro (chamado pelas partidas, de dentro do ator de cada uma) ---
+
+    void jogador(int gameId, int assento, boolean computador, String nome) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(JOGADOR).putInt(gameId).putByte(assento)
+                .putByte(computador ? 1 : 0).putString(nome));
+    }
+
+    void inicio(int gameId, long versao) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(INICIO).putInt(gameId).putLong(versao));
+    }
+
+    void movimento(int gameId, int assento, int[] coords) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(MOVIMENTO).putInt(gameId).putByte(assento).putCaminho(coords));
+    }
+
+    void fim(int gameId, int vencedor) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(FIM).putInt(gameId).putByte(vencedor));
+    }
+
+    void saida(int gameId, int assento) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(SAIDA).putInt(gameId).putByte(assento));
+    }
+
+    void encerrada(int gameId) {
+        if (!ativo) return;
+        enfileirar(new NioProtocol.Encoder(ENCERRADA).putInt(gameId));
+    }
+
+    private void enfileirar(NioProtocol.Encoder registro) {
+        fila.offer(comCrc(registro));
+    }
+
+    // --- Escrita ---
+
+    // Drena tudo o que estiver na fila num único write (group commit) e aplica a política de fsync
+    private void escrever() {
+        List<byte[]> lote = new ArrayList<>();
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        long ultimoFsync = System.nanoTime();
+        boolean pendente = false; // Há dados escritos ainda sem fsync
+        try {
+            while (true) {
+                byte[] primeiro = pendente ? fila.poll(intervaloNanos, TimeUnit.NANOSECONDS) : fila.take();
+                if (primeiro != null) {
+                    lote.add(primeiro);
+                    fila.drainTo(lote);
+                    boolean parar = false;
+                    for (byte[] r : lote) {
+                        if (r == PARAR) {
+                            parar = true;
+                            continue;
+                        }
+                        if (buf.remaining() < r.length) {
+                            descarregar(buf);
+                            if (r.length > buf.capacity()) buf = ByteBuffer.allocateDirect(r.length);
+                        }
+                        buf.put(r);
+                    }
+                    lote.clear();
+                    descarregar(buf);
+                    pendente = true;
+                    if (parar) {
+                        canal.force(false);
+                        return;
+                    }
+                }
+                long agora = System.nanoTime();
+                if (pendente && (politica == FsyncPolicy.SEMPRE
+                        || (politica == FsyncPolicy.INTERVALO && agora - ultimoFsync >= intervaloNanos))) {
+                    canal.force(false);
+                    ultimoFsync = agora;
+                    pendente = false;
+                } else if (politica == FsyncPolicy.NUNCA) {
+                    pendente = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Falha ao gravar o journal " + arquivo + ": " + e.getMessage() + " (desativado)");
+            ativo = false;
+            fila.clear();
+        }
+    }
+
+    private void descarregar(ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) canal.write(buf);
+        buf.clear();
+    }
+
+    // Grava o que estiver na fila e faz fsync (chamado no encerramento do processo)
+    void fechar() {
+        if (!ativo) return;
+        ativo = false;
+        fila.offer(PARAR);
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Encerrando
+        }
+    }
+
+    // --- Leitura e compactação ---
+
+    private static List<PartidaRecuperada> reler(Path arquivo) throws IOException {
+        Map<Integer, PartidaRecuperada> partidas = new LinkedHashMap<>();
+        if (Files.exists(arquivo)) {
+            try (InputStream raw = Files.newInputStream(arquivo);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024))) {
+                CRC32 crc = new CRC32();
+                while (true) {
+                    byte[] corpo;
+                    try {
+                        int len = in.readInt();
+                        if (len <= 0 || len > MAX_REGISTRO) break;
+                        corpo = new byte[len];
+                        in.readFully(corpo);
+                        crc.reset();
+                        crc.update(corpo);
+                        if (in.readInt() != (int) crc.getValue()) break;
+                    } catch (EOFException e) {
+                        break; // Fim do arquivo (ou registro final incompleto)
+                    }
+                    aplicar(partidas, ByteBuffer.wrap(corpo));
+                }
+            }
+        }
+        List<PartidaRecuperada> ativas = new ArrayList<>();
+        for (PartidaRecuperada p : partidas.values()) {
+            if (p.ativa && p.nomes[1] != null && p.nomes[2] != null) ativas.add(p);
+        }
+        return Collections.unmodifiableList(ativas);
+    }
+
+    // Repete sobre o estado reconstruído as mesmas transições do HalmaGame
+    private static void aplicar(Map<Integer, PartidaRecuperada> partidas, ByteBuffer b) {
+        byte tipo = b.get();
+        int gameId = b.getInt();
+        PartidaRecuperada p = partidas.computeIfAbsent(gameId, PartidaRecuperada::new);
+        if (p.descartada) return;
+        try {
+            aplicar(partidas, p, tipo, b);
+        } catch (RuntimeException e) {
+            descartar(p, "registro ilegivel: " + e);
+        }
+    }
+
+    private static void aplicar(Map<Integer, PartidaRecuperada> partidas, PartidaRecuperada p, byte tipo, ByteBuffer b) {
+        switch (tipo) {
+            case JOGADOR: {
+                int assento = b.get();
+                boolean computador = b.get() != 0;
+                p.nomes[assento] = NioProtocol.getString(b);
+                if (computador) p.contraComputador = true;
+                break;
+            }
+            case INICIO:
+                p.tabuleiro = BoardSnapshot.INICIAL.comVersao(b.getLong());
+                p.turno = 1;
+                p.p1Moves = p.p2Moves = 0;
+                p.ativa = true;
+                break;
+            case MOVIMENTO: {
+                int assento = b.get();
+                int[] coords = NioProtocol.getCaminhoCoords(b);
+                BoardSnapshot novo = p.ativa ? p.tabuleiro.mover(coords, assento) : null;
+                if (novo == null) {
+                    // Registro com CRC válido que não se repete: seguir adiante daria turno e placar errados
+                    descartar(p, "lance invalido do jogador " + assento + " na versao " + p.tabuleiro.getVersao());
+                    break;
+                }
+                p.tabuleiro = novo;
+                if (assento == 1) p.p1Moves++;
+                else p.p2Moves++;
+                p.turno = 3 - assento;
+                if (novo.verificarVencedor(assento)) p.ativa = false;
+                break;
+            }
+            case FIM:
+                p.ativa = false;
+                break;
+            case SAIDA: {
+                int assento = b.get();
+                p.nomes[assento] = null;
+                if (p.contraComputador && assento == 1) p.nomes[2] = null;
+                p.ativa = false;
+                if (p.nomes[1] == null && p.nomes[2] == null) partidas.remove(p.gameId);
+                break;
+            }
+            case ENCERRADA:
+                partidas.remove(p.gameId);
+                break;
+            case ESTADO:
+                long versao = b.getLong();
+                p.tabuleiro = new BoardSnapshot(versao, b.getLong(), b.getLong());
+                p.turno = b.get();
+                p.p1Moves = b.getInt();
+                p.p2Moves = b.getInt();
+                p.ativa = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    // A partida não é recuperada e os registros seguintes dela são ignorados (como depois de um CRC inválido)
+    private static void descartar(PartidaRecuperada p, String motivo) {
+        System.err.println("Journal: partida " + p.gameId + " nao sera recuperada (" + motivo + ")");
+        p.descartada = true;
+        p.ativa = false;
+    }
+
+    // Reescreve o journal só com as partidas recuperadas (arquivo temporário + rename atômico)
+    private void compactar() throws IOException {
+        Path dir = arquivo.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, "halma-journal", ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (PartidaRecuperada p : recuperadas) {
+                for (int assento = 1; assento <= 2; assento++) {
+                    boolean computador = p.contraComputador && assento == 2;
+                    escreverDireto(ch, new NioProtocol.Encoder(JOGADOR).putInt(p.gameId).putByte(assento)
+                            .putByte(computador ? 1 : 0).putString(p.nomes[assento]));
+                }
+                BoardSnapshot t = p.tabuleiro;
+                escreverDireto(ch, new NioProtocol.Encoder(ESTADO).putInt(p.gameId).putLong(t.getVersao())
+                        .putLong(t.getOcupacao(1)).putLong(t.getOcupacao(2))
+                        .putByte(p.turno).putInt(p.p1Moves).putInt(p.p2Moves));
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void escreverDireto(FileChannel ch, NioProtocol.Encoder registro) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(comCrc(registro));
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    // O frame do NioProtocol ([int tamanho][byte tipo][payload]) seguido do CRC de tipo + payload
+    private static byte[] comCrc(NioProtocol.Encoder registro) {
+        ByteBuffer frame = registro.finish();
+        int len = frame.remaining();
+        byte[] r = new byte[len + 4];
+        frame.get(r, 0, len);
+        CRC32 crc = new CRC32();
+        crc.update(r, 4, len - 4);
+        ByteBuffer.wrap(r).putInt(len, (int) crc.getValue());
+        return r;
+    }
+}
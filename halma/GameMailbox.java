@@ -0,0 +1,69 @@
+package halma;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Caixa de mensagens de um ator (uma partida): os comandos são executados um por vez, na ordem de chegada,
+// por uma tarefa num pool compartilhado por todas as partidas. O estado do ator só é tocado pelo comando em
+// execução, então dispensa lock; partidas diferentes rodam em paralelo nos núcleos do pool.
+// Depois de LOTE comandos a tarefa devolve a thread ao pool e se reagenda, para uma partida movimentada
+// não monopolizar uma thread enquanto outras esperam.
+// O NioServerTransport usa a mesma caixa para tratar, em ordem, os frames de uma conexão fora do seletor.
+final class GameMailbox {
+    private static final int LOTE = 64;
+
+    private final Executor executor;
+    private final String nome;
+    private final ConcurrentLinkedQueue<Runnable> fila = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean agendada = new AtomicBoolean(false);
+    private volatile Thread emExecucao; // Thread que está processando a caixa agora (ou null)
+
+    GameMailbox(Executor executor, String nome) {
+        this.executor = executor;
+        this.nome = nome;
+    }
+
+    // Enfileira o comando e retorna na hora
+    void executar(Runnable comando) {
+        fila.offer(comando);
+        if (agendada.compareAndSet(false, true)) executor.execute(this::processar);
+    }
+
+    // Executa a consulta na vez dela e espera o resultado. Chamado de dentro do próprio ator, roda direto
+    // (esperar pela própria fila seria um deadlock).
+    <T> T pedir(Supplier<T> consulta) {
+        if (Thread.currentThread() == emExecucao) return consulta.get();
+        CompletableFuture<T> f = new CompletableFuture<>();
+        executar(() -> {
+            try {
+                f.complete(consulta.get());
+            } catch (RuntimeException e) {
+                f.completeExceptionally(e);
+                throw e;
+            }
+        });
+        return f.join();
+    }
+
+    private void processar() {
+        emExecucao = Thread.currentThread();
+        try {
+            Runnable comando;
+            for (int n = 0; n < LOTE && (comando = fila.poll()) != null; n++) {
+                try {
+                    comando.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[" + nome + "] Erro ao processar comando: " + e);
+                }
+            }
+        } finally {
+            emExecucao = null;
+            agendada.set(false);
+        }
+        // Chegou comando depois do último poll (ou o lote acabou): alguém precisa reagendar
+        if (!fila.isEmpty() && agendada.compareAndSet(false, true)) executor.execute(this::processar);
+    }
+}
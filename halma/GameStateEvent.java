@@ -0,0 +1,87 @@
+package halma;
+
+import java.awt.Point;
+import java.io.Serializable;
+
+// Evento imutável "estado do jogo mudou", enviado em um único callback por movimento.
+// Carrega o delta do tabuleiro (ou um snapshot completo), o turno, o placar e o vencedor (se houver),
+// para que o cliente aplique tudo de uma vez, sem janela entre tabuleiro novo e turno antigo.
+// O snapshot é um BoardSnapshot imutável: o mesmo objeto serve a todos os destinatários, sem cópias.
+public final class GameStateEvent implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final long versao;         // Versão do tabuleiro após o evento
+    private final BoardSnapshot tabuleiro; // Snapshot completo, ou null quando o evento é um delta
+    private final int[] caminho;       // Caminho do movimento [x1, y1, x2, y2, ...], ou null
+    private final int turno;           // Jogador da vez (1 ou 2), ou 0 se o jogo não está ativo
+    private final int p1Moves;
+    private final int p2Moves;
+    private final int vencedor;        // Id do vencedor, ou 0 se o jogo não terminou
+
+    private GameStateEvent(long versao, BoardSnapshot tabuleiro, int[] caminho, int turno,
+                           int p1Moves, int p2Moves, int vencedor) {
+        this.versao = versao;
+        this.tabuleiro = tabuleiro;
+        this.caminho = caminho;
+        this.turno = turno;
+        this.p1Moves = p1Moves;
+        this.p2Moves = p2Moves;
+        this.vencedor = vencedor;
+    }
+
+    // Snapshot completo (início/reinício de jogo ou recuperação de lacuna de versão)
+    // (a versão do evento é a do snapshot)
+    public static GameStateEvent snapshot(BoardSnapshot board, int turno,
+                                          int p1Moves, int p2Moves, int vencedor) {
+        return new GameStateEvent(board.getVersao(), board, null, turno, p1Moves, p2Moves, vencedor);
+    }
+
+    // Delta de um movimento aceito; 'versao' é a versão resultante
+    public static GameStateEvent movimento(long versao, int[] caminho, int turno,
+                                           int p1Moves, int p2Moves, int vencedor) {
+        return new GameStateEvent(versao, null, caminho.clone(), turno, p1Moves, p2Moves, vencedor);
+    }
+
+    // Mudança sem alteração do tabuleiro (ex.: desistência)
+    public static GameStateEvent estado(long versao, int turno, int p1Moves, int p2Moves, int vencedor) {
+        return new GameStateEvent(versao, null, null, turno, p1Moves, p2Moves, vencedor);
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    public boolean isSnapshot() {
+        return tabuleiro != null;
+    }
+
+    // Imutável: pode ser compartilhado entre vários destinatários sem cópia
+    public BoardSnapshot getTabuleiro() {
+        return tabuleiro;
+    }
+
+    public int[] getCaminho() {
+        return (caminho == null) ? null : caminho.clone();
+    }
+
+    public Point getLastMove() {
+        if (caminho == null || caminho.length < 2) return null;
+        return new Point(caminho[caminho.length - 2], caminho[caminho.length - 1]);
+    }
+
+    public int getTurno() {
+        return turno;
+    }
+
+    public int getP1Moves() {
+        return p1Moves;
+    }
+
+    public int getP2Moves() {
+        return p2Moves;
+    }
+
+    public int getVencedor() {
+        return vencedor;
+    }
+}
@@ -3,46 +3,224 @@ package halma;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
-import java.io.Serializable; // Import necessário para RMI
-
-// Adicionado 'implements Serializable' para permitir envio pela rede
-public class HalmaBoard implements Serializable {
+import java.io.Externalizable; // Import necessário para RMI (formato compacto)
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+// Adicionado 'implements Externalizable' para permitir envio pela rede com formato próprio:
+// 1 byte de versão + os dois bitboards (17 bytes de dados), em vez da serialização padrão.
+// O tabuleiro 8x8 é representado por bitboards: um long (64 bits) de ocupação por jogador.
+// O bit de índice (y * 8 + x) está ligado quando a casa (x, y) contém uma peça do jogador.
+public class HalmaBoard implements Externalizable {
     // Adicionado serialVersionUID para evitar problemas de versão entre cliente/servidor
-    private static final long serialVersionUID = 1L;
+    // (3L: formato Externalizable com cabeçalho de versão)
+    private static final long serialVersionUID = 3L;
+    private static final byte WIRE_FORMAT_VERSION = 1;
+
+    private static final int SIZE = 8;
+
+    // Bases triangulares (4+3+2+1 casas)
+    static final long BASE_TOP_LEFT = buildTopLeftBase();         // Base inicial do P1, alvo do P2
+    static final long BASE_BOTTOM_RIGHT = buildBottomRightBase(); // Base inicial do P2, alvo do P1
+
+    static final int PECAS_POR_JOGADOR = 10;
+
+    // Maior caminho aceito num lance (origem inclusive): uma casa por casa do tabuleiro.
+    // Passos simples encadeados permitiriam caminhos de qualquer tamanho.
+    static final int MAX_CASAS_CAMINHO = SIZE * SIZE;
+
+    // Distância de cada casa ao canto alvo: P1 vai para (7, 7), P2 para (0, 0)
+    static final int[] DISTANCIA_P1 = new int[64];
+    static final int[] DISTANCIA_P2 = new int[64];
 
-    private final int size = 8;
-    private int[][] board;
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            DISTANCIA_P1[sq] = 14 - (sq & 7) - (sq >>> 3);
+            DISTANCIA_P2[sq] = (sq & 7) + (sq >>> 3);
+        }
+    }
+
+    // As 8 direções (dx, dy) usadas para passos e pulos
+    private static final int[] DIR_X = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    private static final int[] DIR_Y = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+    // Tabelas por casa, montadas uma vez no carregamento da classe:
+    // - ADJACENTES[sq]: máscara das casas vizinhas (passos simples)
+    // - pulos da casa sq nas posições [PULO_INICIO[sq], PULO_INICIO[sq + 1]) de PULO_SOBRE / PULO_DESTINO,
+    //   só para as direções em que o destino cai dentro do tabuleiro
+    // - SOBRE[(de << 6) | para]: casa pulada no pulo de 'de' para 'para', ou -1 se não for um pulo
+    private static final long[] ADJACENTES = new long[64];
+    private static final int[] PULO_INICIO = new int[65];
+    private static final long[] PULO_SOBRE;
+    private static final long[] PULO_DESTINO;
+    private static final byte[] SOBRE = new byte[64 * 64];
+
+    static {
+        long[] sobre = new long[64 * 8];
+        long[] destino = new long[64 * 8];
+        java.util.Arrays.fill(SOBRE, (byte) -1);
+        int n = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int x = sq & 7, y = sq >>> 3;
+            PULO_INICIO[sq] = n;
+            for (int d = 0; d < 8; d++) {
+                int ax = x + DIR_X[d], ay = y + DIR_Y[d];
+                if (ax < 0 || ax >= SIZE || ay < 0 || ay >= SIZE) continue;
+                ADJACENTES[sq] |= bit(ax, ay);
+                int jx = ax + DIR_X[d], jy = ay + DIR_Y[d];
+                if (jx < 0 || jx >= SIZE || jy < 0 || jy >= SIZE) continue;
+                sobre[n] = bit(ax, ay);
+                destino[n] = bit(jx, jy);
+                SOBRE[(sq << 6) | (jy << 3) | jx] = (byte) ((ay << 3) | ax);
+                n++;
+            }
+        }
+        PULO_INICIO[64] = n;
+        PULO_SOBRE = java.util.Arrays.copyOf(sobre, n);
+        PULO_DESTINO = java.util.Arrays.copyOf(destino, n);
+    }
+
+    private final int size = SIZE;
+    private long p1; // Ocupação do Jogador 1
+    private long p2; // Ocupação do Jogador 2
+
+    // Contadores mantidos a cada mudança (derivados dos bitboards; não vão para o formato de rede):
+    // peças de cada jogador dentro da base alvo e soma das distâncias de suas peças ao canto alvo
+    private int p1NoAlvo, p2NoAlvo;
+    private int p1Distancia, p2Distancia;
 
     // Construtor de Cópia
     public HalmaBoard(HalmaBoard original) {
-        int s = original.board.length;
-        this.board = new int[s][s];
-        for (int i = 0; i < s; i++)
-            System.arraycopy(original.board[i], 0, this.board[i], 0, s);
+        synchronized (original) {
+            this.p1 = original.p1;
+            this.p2 = original.p2;
+            this.p1NoAlvo = original.p1NoAlvo;
+            this.p2NoAlvo = original.p2NoAlvo;
+            this.p1Distancia = original.p1Distancia;
+            this.p2Distancia = original.p2Distancia;
+        }
     }
 
-    // Construtor Padrão
+    // Constrói a partir das máscaras de ocupação (usado pelos transportes binários)
+    static HalmaBoard deOcupacao(long p1, long p2) {
+        HalmaBoard b = new HalmaBoard();
+        b.p1 = p1;
+        b.p2 = p2;
+        b.recalcularContadores();
+        return b;
+    }
+
+    synchronized long getOcupacao(int player) {
+        return (player == 1) ? p1 : (player == 2) ? p2 : 0L;
+    }
+
+    // Construtor Padrão (também usado pela desserialização, antes de readExternal)
     public HalmaBoard() {
-        board = new int[size][size];
         inicializarPecas();
     }
 
+    @Override
+    public synchronized void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(WIRE_FORMAT_VERSION);
+        out.writeLong(p1);
+        out.writeLong(p2);
+    }
+
+    @Override
+    public synchronized void readExternal(ObjectInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != WIRE_FORMAT_VERSION) {
+            throw new InvalidObjectException("Versao de formato do tabuleiro nao suportada: " + version);
+        }
+        long a = in.readLong();
+        long b = in.readLong();
+        if ((a & b) != 0) throw new InvalidObjectException("Tabuleiro invalido: casas ocupadas pelos dois jogadores");
+        // Contadores e verificarVencedor supõem PECAS_POR_JOGADOR peças de cada lado
+        if (Long.bitCount(a) != PECAS_POR_JOGADOR || Long.bitCount(b) != PECAS_POR_JOGADOR) {
+            throw new InvalidObjectException("Tabuleiro invalido: " + Long.bitCount(a) + " e " + Long.bitCount(b)
+                    + " pecas (esperado " + PECAS_POR_JOGADOR + " por jogador)");
+        }
+        p1 = a;
+        p2 = b;
+        recalcularContadores();
+    }
+
     private void inicializarPecas() {
-        // Jogador 1 (Canto superior esquerdo)
+        // Jogador 1 (Canto superior esquerdo) / Jogador 2 (Canto inferior direito)
+        p1 = BASE_TOP_LEFT;
+        p2 = BASE_BOTTOM_RIGHT;
+        recalcularContadores();
+    }
+
+    private void recalcularContadores() {
+        p1NoAlvo = Long.bitCount(p1 & BASE_BOTTOM_RIGHT);
+        p2NoAlvo = Long.bitCount(p2 & BASE_TOP_LEFT);
+        p1Distancia = somaDistancias(p1, DISTANCIA_P1);
+        p2Distancia = somaDistancias(p2, DISTANCIA_P2);
+    }
+
+    static int somaDistancias(long pecas, int[] distancia) {
+        int soma = 0;
+        for (long b = pecas; b != 0; b &= b - 1) soma += distancia[Long.numberOfTrailingZeros(b)];
+        return soma;
+    }
+
+    // Atualiza os contadores do jogador para a peça que saiu de 'de' (ou -1) e entrou em 'para' (ou -1)
+    private void atualizarContadores(int player, int de, int para) {
+        if (player == 1) {
+            if (de >= 0) {
+                p1Distancia -= DISTANCIA_P1[de];
+                if ((BASE_BOTTOM_RIGHT & (1L << de)) != 0) p1NoAlvo--;
+            }
+            if (para >= 0) {
+                p1Distancia += DISTANCIA_P1[para];
+                if ((BASE_BOTTOM_RIGHT & (1L << para)) != 0) p1NoAlvo++;
+            }
+        } else {
+            if (de >= 0) {
+                p2Distancia -= DISTANCIA_P2[de];
+                if ((BASE_TOP_LEFT & (1L << de)) != 0) p2NoAlvo--;
+            }
+            if (para >= 0) {
+                p2Distancia += DISTANCIA_P2[para];
+                if ((BASE_TOP_LEFT & (1L << para)) != 0) p2NoAlvo++;
+            }
+        }
+    }
+
+    // Peças do jogador dentro da base alvo (a base inicial do adversário)
+    public synchronized int getPecasNoAlvo(int player) {
+        return (player == 1) ? p1NoAlvo : (player == 2) ? p2NoAlvo : 0;
+    }
+
+    // Soma das distâncias (em passos de rei) das peças do jogador ao canto alvo; 0 = todas no canto
+    public synchronized int getDistanciaAoAlvo(int player) {
+        return (player == 1) ? p1Distancia : (player == 2) ? p2Distancia : 0;
+    }
+
+    private static long buildTopLeftBase() {
+        long mask = 0L;
         for (int y = 0; y < 4; y++) {
             for (int x = 0; x < 4 - y; x++) {
-                board[y][x] = 1;
+                mask |= bit(x, y);
             }
         }
-        // Jogador 2 (Canto inferior direito)
-        int startRow = size - 4;
-        for (int y = startRow; y < size; y++) {
+        return mask;
+    }
+
+    private static long buildBottomRightBase() {
+        long mask = 0L;
+        int startRow = SIZE - 4;
+        for (int y = startRow; y < SIZE; y++) {
             int count = y - startRow + 1;
-            int startX = size - count;
-            for (int x = startX; x < size; x++) {
-                board[y][x] = 2;
+            int startX = SIZE - count;
+            for (int x = startX; x < SIZE; x++) {
+                mask |= bit(x, y);
             }
         }
+        return mask;
     }
 
     public int getSize() {
@@ -51,155 +229,225 @@ public class HalmaBoard implements Serializable {
 
     public int getPieceAt(int x, int y) {
         if (!inBounds(x, y)) return 0;
-        return board[y][x];
+        return cellAt(bit(x, y));
     }
 
     public synchronized List<Point> getValidMoves(int jogador, int x, int y) {
         List<Point> moves = new ArrayList<>();
-        for (int dy = -2; dy <= 2; dy++)
-            for (int dx = -2; dx <= 2; dx++) {
-                if (dx == 0 && dy == 0) continue;
-                int nx = x + dx, ny = y + dy;
-                if (!inBounds(nx, ny)) continue;
-                if (board[ny][nx] != 0) continue;
-                int max = Math.max(Math.abs(dx), Math.abs(dy));
-                if (max == 1) moves.add(new Point(nx, ny));
-                else if (max == 2) {
-                    boolean isJump = (Math.abs(dx) == 2 && Math.abs(dy) == 0) ||
-                            (Math.abs(dx) == 0 && Math.abs(dy) == 2) ||
-                            (Math.abs(dx) == 2 && Math.abs(dy) == 2);
-                    if (!isJump) continue;
-                    int mx = x + dx / 2, my = y + dy / 2;
-                    if (inBounds(mx, my) && board[my][mx] != 0) moves.add(new Point(nx, ny));
+        if (!inBounds(x, y)) return moves;
+
+        adicionarDestinos(destinosDiretos((y << 3) | x, p1 | p2), moves);
+        return moves;
+    }
+
+    // Passos simples e pulos únicos a partir da casa sq
+    static long destinosDiretos(int sq, long occ) {
+        return (ADJACENTES[sq] | jumpTargets(sq, occ)) & ~occ;
+    }
+
+    static void adicionarDestinos(long targets, List<Point> moves) {
+        // Percorre os bits em ordem crescente (linha a linha), a mesma ordem da varredura por casas
+        while (targets != 0) {
+            int sq = Long.numberOfTrailingZeros(targets);
+            moves.add(new Point(sq & 7, sq >>> 3));
+            targets &= targets - 1;
+        }
+    }
+
+    // Gera todos os destinos da peça em (x, y): passos simples e destinos alcançáveis por pulos
+    // encadeados, cada um com o caminho completo. Retorna o número de movimentos no buffer.
+    public synchronized int gerarMovimentos(int x, int y, MoveBuffer buf) {
+        buf.clear();
+        if (inBounds(x, y) && cellAt(bit(x, y)) != 0) {
+            gerarMovimentosPeca((y << 3) | x, p1 | p2, buf);
+        }
+        return buf.size();
+    }
+
+    // Gera todos os movimentos legais do jogador no buffer (que é limpo antes)
+    public synchronized int gerarTodosMovimentos(int player, MoveBuffer buf) {
+        buf.clear();
+        long own = (player == 1) ? p1 : (player == 2) ? p2 : 0L;
+        gerarTodosMovimentos(own, p1 | p2, buf);
+        return buf.size();
+    }
+
+    static void gerarTodosMovimentos(long own, long occ, MoveBuffer buf) {
+        while (own != 0) {
+            gerarMovimentosPeca(Long.numberOfTrailingZeros(own), occ, buf);
+            own &= own - 1;
+        }
+    }
+
+    // Um único flood-fill (BFS) por peça sobre o grafo de pulos; parent[] permite remontar o caminho
+    static void gerarMovimentosPeca(int fromSq, long occ, MoveBuffer buf) {
+        long from = 1L << fromSq;
+
+        // Passos simples
+        long steps = ADJACENTES[fromSq] & ~occ;
+        for (long s = steps; s != 0; s &= s - 1) {
+            int sq = Long.numberOfTrailingZeros(s);
+            int off = buf.add(fromSq, sq, 2);
+            buf.setSquare(off, fromSq);
+            buf.setSquare(off + 1, sq);
+        }
+
+        // Pulos encadeados: a peça sai da origem, então a origem fica livre durante o percurso
+        long board = occ & ~from;
+        int[] parent = buf.parent;
+        int[] queue = buf.queue;
+        long visited = from;
+        int head = 0, tail = 0;
+        queue[tail++] = fromSq;
+        parent[fromSq] = -1;
+
+        while (head < tail) {
+            int cur = queue[head++];
+            long next = jumpTargets(cur, board) & ~visited;
+            visited |= next;
+            for (; next != 0; next &= next - 1) {
+                int sq = Long.numberOfTrailingZeros(next);
+                parent[sq] = cur;
+                queue[tail++] = sq;
+                if ((steps & (1L << sq)) != 0) continue; // Já alcançado por passo simples
+
+                int len = 1;
+                for (int p = sq; parent[p] != -1; p = parent[p]) len++;
+                int off = buf.add(fromSq, sq, len);
+                for (int p = sq, k = len - 1; k >= 0; p = parent[p], k--) {
+                    buf.setSquare(off + k, p);
                 }
             }
-        return moves;
+        }
     }
 
     // Verifica se coordenadas estão dentro do tabuleiro
     private boolean inBounds(int x, int y) {
-        return x >= 0 && x < size && y >= 0 && y < size;
+        return dentro(x, y);
+    }
+
+    static boolean dentro(int x, int y) {
+        return x >= 0 && x < SIZE && y >= 0 && y < SIZE;
     }
 
     public synchronized void setCell(int x, int y, int value) {
-        if (inBounds(x, y)) board[y][x] = value;
+        if (!inBounds(x, y)) return;
+        long b = bit(x, y);
+        int sq = (y << 3) | x;
+        int atual = cellAt(b);
+        if (atual != 0) atualizarContadores(atual, sq, -1);
+        p1 &= ~b;
+        p2 &= ~b;
+        if (value == 1) p1 |= b;
+        else if (value == 2) p2 |= b;
+        if (value == 1 || value == 2) atualizarContadores(value, -1, sq);
     }
 
     public synchronized int getCell(int x, int y) {
-        if (inBounds(x, y)) return board[y][x];
+        if (inBounds(x, y)) return cellAt(bit(x, y));
         return -1;
     }
 
+    private int cellAt(long b) {
+        if ((p1 & b) != 0) return 1;
+        if ((p2 & b) != 0) return 2;
+        return 0;
+    }
 
     // Executa uma sequência de movimentos (verificação básica de validade)
     // coords = [x1, y1, x2, y2, x3, y3...]
     public synchronized boolean moverPecaSequence(int[] coords, int player) {
-        if (coords.length < 4 || coords.length % 2 != 0) return false;
+        long own = (player == 1) ? p1 : (player == 2) ? p2 : 0L;
+        int destino = destinoSequencia(coords, own, p1 | p2);
+        if (destino < 0) return false;
+
+        // Se chegou aqui, a sequência é válida. Aplica no tabuleiro real.
+        int origem = (coords[1] << 3) | coords[0];
+        long move = (1L << origem) | (1L << destino);
+        if (player == 1) p1 ^= move;
+        else p2 ^= move;
+        atualizarContadores(player, origem, destino);
+
+        return true;
+    }
+
+    // Valida a sequência sobre as máscaras 'own' (peças do jogador) e 'occ' (todas as peças), sem alterá-las.
+    // Retorna a casa de destino, ou -1 se a sequência for inválida. Compartilhado com o BoardSnapshot.
+    static int destinoSequencia(int[] coords, long own, long occ) {
+        if (coords.length < 4 || coords.length % 2 != 0 || coords.length > MAX_CASAS_CAMINHO * 2) return -1;
 
         int xStart = coords[0];
         int yStart = coords[1];
 
         // Verifica se a peça inicial pertence ao jogador
-        if (!inBounds(xStart, yStart) || board[yStart][xStart] != player) return false;
+        if (!dentro(xStart, yStart)) return -1;
+        if ((own & bit(xStart, yStart)) == 0) return -1;
 
-        // Simula os movimentos passo a passo
+        // Simula os movimentos passo a passo sobre uma cópia da máscara de ocupação
+        // (um long local, sem alocar nem copiar o tabuleiro)
         int currentX = xStart;
         int currentY = yStart;
 
-        // Clonamos o tabuleiro temporariamente para validar sem corromper o estado atual se falhar no meio
-        int[][] tempBoard = new int[size][size];
-        for (int i = 0; i < size; i++) System.arraycopy(board[i], 0, tempBoard[i], 0, size);
-
         for (int i = 2; i < coords.length; i += 2) {
             int nextX = coords[i];
             int nextY = coords[i + 1];
 
-            if (!validarPasso(tempBoard, currentX, currentY, nextX, nextY)) {
-                return false; // Passo inválido
+            if (!validarPasso(occ, currentX, currentY, nextX, nextY)) {
+                return -1; // Passo inválido
             }
 
             // Move a peça temporariamente
-            tempBoard[nextY][nextX] = tempBoard[currentY][currentX];
-            tempBoard[currentY][currentX] = 0;
+            occ ^= bit(currentX, currentY) | bit(nextX, nextY);
 
             currentX = nextX;
             currentY = nextY;
         }
 
-        // Se chegou aqui, a sequência é válida. Aplica no tabuleiro real.
-        int xFinal = coords[coords.length - 2];
-        int yFinal = coords[coords.length - 1];
-
-        board[yFinal][xFinal] = board[yStart][xStart];
-        board[yStart][xStart] = 0;
-
-        return true;
+        // Uma sequência que termina na origem não move a peça (e o XOR do chamador a apagaria)
+        if (currentX == xStart && currentY == yStart) return -1;
+        return (currentY << 3) | currentX;
     }
 
     // Valida um único passo (adjacente ou pulo)
-    private boolean validarPasso(int[][] b, int x1, int y1, int x2, int y2) {
-        if (!inBounds(x2, y2)) return false;
-        if (b[y2][x2] != 0) return false; // Destino deve estar vazio
+    private static boolean validarPasso(long occ, int x1, int y1, int x2, int y2) {
+        if (!dentro(x2, y2)) return false;
+        long to = bit(x2, y2);
+        if ((occ & to) != 0) return false; // Destino deve estar vazio
 
-        int dx = x2 - x1;
-        int dy = y2 - y1;
-        int adx = Math.abs(dx);
-        int ady = Math.abs(dy);
+        int from = (y1 << 3) | x1;
 
         // Movimento simples (adjacente)
-        if (adx <= 1 && ady <= 1 && (adx + ady > 0)) {
-            // Só permite movimento simples se for o primeiro e único passo da jogada?
-            // Na regra simplificada, geralmente sim, mas aqui vamos permitir como parte da lógica básica.
-            // Para ser estrito: movimentos simples não podem ser encadeados.
-            // Mas este método é genérico. A UI controla a montagem da sequência.
-            return true;
-        }
-
-        // Pulo (Jump)
-        if ((adx == 0 && ady == 2) || (adx == 2 && ady == 0) || (adx == 2 && ady == 2)) {
-            int midX = x1 + dx / 2;
-            int midY = y1 + dy / 2;
-            // Precisa ter uma peça no meio para pular
-            if (b[midY][midX] != 0) return true;
-        }
+        // Movimentos simples não são bloqueados no encadeamento aqui; a UI controla a montagem da sequência.
+        if ((ADJACENTES[from] & to) != 0) return true;
 
-        return false;
+        // Pulo (Jump): precisa ter uma peça no meio para pular
+        int over = SOBRE[(from << 6) | (y2 << 3) | x2];
+        return over >= 0 && (occ & (1L << over)) != 0;
     }
 
     public boolean verificarVencedor(int player) {
         // Jogador 1 vence se encher a base do Jogador 2 (inferior direita)
         // Jogador 2 vence se encher a base do Jogador 1 (superior esquerda)
-        // Simplificação: verifica se todas as posições da base oposta estão ocupadas pelo jogador
-
+        // A base alvo tem exatamente PECAS_POR_JOGADOR casas: está cheia quando o contador chega a esse valor
         if (player == 1) {
-            return isBaseFull(player, true); // Checa base alvo do P1 (que é a original do P2)
+            return p1NoAlvo == PECAS_POR_JOGADOR;
         } else {
-            return isBaseFull(player, false); // Checa base alvo do P2 (que é a original do P1)
+            return p2NoAlvo == PECAS_POR_JOGADOR;
         }
     }
 
-    private boolean isBaseFull(int player, boolean checkBottomRight) {
-        int countTarget = 10; // 4+3+2+1 peças
-        int count = 0;
+    // --- Operações de bitboard ---
 
-        if (checkBottomRight) {
-            // Base inferior direita
-            int startRow = size - 4;
-            for (int y = startRow; y < size; y++) {
-                int c = y - startRow + 1;
-                int startX = size - c;
-                for (int x = startX; x < size; x++) {
-                    if (board[y][x] == player) count++;
-                }
-            }
-        } else {
-            // Base superior esquerda
-            for (int y = 0; y < 4; y++) {
-                for (int x = 0; x < 4 - y; x++) {
-                    if (board[y][x] == player) count++;
-                }
-            }
+    static long bit(int x, int y) {
+        return 1L << ((y << 3) | x);
+    }
+
+    // Destinos de pulo a partir da casa sq: a casa vizinha está ocupada e a seguinte, na mesma direção, está livre
+    private static long jumpTargets(int sq, long occ) {
+        long targets = 0L;
+        for (int k = PULO_INICIO[sq], fim = PULO_INICIO[sq + 1]; k < fim; k++) {
+            if ((occ & PULO_SOBRE[k]) != 0) targets |= PULO_DESTINO[k];
         }
-        return count == countTarget;
+        return targets & ~occ;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package halma;
+
+import javax.swing.JComponent;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+// Tabuleiro desenhado num único componente (no lugar de 64 JButtons).
+// As casas ficam numa imagem fora da tela; a cada atualização só as casas cuja aparência mudou
+// (peça, último lance, destino válido) são redesenhadas nela e só a região delas é repintada.
+// Os sprites das peças são gerados uma vez por cor e tamanho de casa.
+class HalmaBoardPanel extends JComponent {
+    interface CliqueListener {
+        void clicado(int x, int y);
+    }
+
+    private static final int SIZE = 8;
+    private static final int BASE_SIZE = 4;
+
+    // Aparência de uma casa: bits 0-1 a peça, bits 2-3 o realce
+    private static final int REALCE_ULTIMO = 1 << 2;
+    private static final int REALCE_DESTINO = 2 << 2;
+
+    private final Color lightSquare = new Color(170, 120, 70);
+    private final Color darkSquare = new Color(110, 70, 40);
+    private final Color lastMoveColor = new Color(255, 200, 0);
+    private final Color topBaseHighlight = new Color(85, 80, 82);
+    private final Color bottomBaseHighlight = new Color(204, 204, 204);
+    private final Color destinoColor = new Color(120, 230, 120);
+    private final Color destinoBorda = new Color(30, 120, 30);
+    private final BasicStroke bordaDestino = new BasicStroke(2f);
+    private final Color[] pieceColors;
+
+    private final int[] aparencia = new int[SIZE * SIZE]; // O que está desenhado em 'quadro'
+    private BufferedImage quadro;                          // Casas desenhadas (fora da tela)
+    private final BufferedImage[] sprites = new BufferedImage[3];
+    private int spriteSize = -1;
+    private int cellW, cellH, offX, offY;
+
+    private BoardSnapshot tabuleiro = BoardSnapshot.INICIAL;
+    private int ultimo = -1;    // Casa do último lance (realce)
+    private long destinos = 0L; // Destinos válidos da peça selecionada (realce)
+
+    HalmaBoardPanel(Color player1Color, Color player2Color, CliqueListener listener) {
+        this.pieceColors = new Color[] { null, player1Color, player2Color };
+        setOpaque(true);
+        setPreferredSize(new Dimension(SIZE * 64, SIZE * 64));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (cellW == 0 || cellH == 0) return;
+                int x = Math.floorDiv(e.getX() - offX, cellW), y = Math.floorDiv(e.getY() - offY, cellH);
+                if (x >= 0 && x < SIZE && y >= 0 && y < SIZE) listener.clicado(x, y);
+            }
+        });
+    }
+
+    // Só no EDT. 'ultimoLance' pode ser null; 'destinos' é a máscara de bits (sq = y*8 + x) das casas realçadas.
+    void atualizar(BoardSnapshot tabuleiro, Point ultimoLance, long destinos) {
+        this.tabuleiro = tabuleiro;
+        this.ultimo = (ultimoLance != null && HalmaBoard.dentro(ultimoLance.x, ultimoLance.y))
+                ? ultimoLance.y * SIZE + ultimoLance.x : -1;
+        this.destinos = destinos;
+        redesenharMudancas();
+    }
+
+    void setDestinos(long destinos) {
+        this.destinos = destinos;
+        redesenharMudancas();
+    }
+
+    private void redesenharMudancas() {
+        if (quadro == null) return; // Ainda sem tamanho: o primeiro paint desenha tudo
+
+        Rectangle sujo = null;
+        for (int sq = 0; sq < SIZE * SIZE; sq++) {
+            int a = aparenciaDe(sq);
+            if (a == aparencia[sq]) continue;
+            desenharCasa(sq, a);
+            Rectangle r = new Rectangle(offX + (sq & 7) * cellW, offY + (sq >>> 3) * cellH, cellW, cellH);
+            if (sujo == null) sujo = r;
+            else sujo.add(r);
+        }
+        if (sujo != null) repaint(sujo);
+    }
+
+    private int aparenciaDe(int sq) {
+        int a = tabuleiro.getCell(sq & 7, sq >>> 3);
+        if ((destinos & (1L << sq)) != 0) a |= REALCE_DESTINO;
+        else if (sq == ultimo) a |= REALCE_ULTIMO;
+        return a;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int w = getWidth(), h = getHeight();
+        if (quadro == null || quadro.getWidth() != w || quadro.getHeight() != h) redesenharTudo(w, h);
+        g.drawImage(quadro, 0, 0, null); // Limitado pelo clip: só a região suja é copiada
+    }
+
+    // Novo tamanho: refaz a imagem de fundo, os sprites e todas as casas
+    private void redesenharTudo(int w, int h) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        quadro = (gc != null) ? gc.createCompatibleImage(Math.max(1, w), Math.max(1, h))
+                              : new BufferedImage(Math.max(1, w), Math.max(1, h), BufferedImage.TYPE_INT_RGB);
+        cellW = w / SIZE;
+        cellH = h / SIZE;
+        offX = (w - cellW * SIZE) / 2;
+        offY = (h - cellH * SIZE) / 2;
+
+        Graphics2D g = quadro.createGraphics();
+        g.setColor(getBackground() != null ? getBackground() : Color.DARK_GRAY);
+        g.fillRect(0, 0, w, h);
+        g.dispose();
+
+        int tamanho = Math.min(cellW, cellH) * 3 / 4;
+        if (tamanho != spriteSize) {
+            spriteSize = tamanho;
+            sprites[1] = criarSprite(pieceColors[1], tamanho, gc);
+            sprites[2] = criarSprite(pieceColors[2], tamanho, gc);
+        }
+        for (int sq = 0; sq < SIZE * SIZE; sq++) desenharCasa(sq, aparenciaDe(sq));
+    }
+
+    private void desenharCasa(int sq, int a) {
+        aparencia[sq] = a;
+        if (cellW <= 0 || cellH <= 0) return;
+        int x = sq & 7, y = sq >>> 3;
+        int px = offX + x * cellW, py = offY + y * cellH;
+        Graphics2D g = quadro.createGraphics();
+        try {
+            int realce = a & (3 << 2);
+            g.setColor(realce == REALCE_DESTINO ? destinoColor : realce == REALCE_ULTIMO ? lastMoveColor : getSquareColor(x, y));
+            g.fillRect(px, py, cellW, cellH);
+            if (realce == REALCE_DESTINO) {
+                g.setColor(destinoBorda);
+                g.setStroke(bordaDestino);
+                g.drawRect(px + 1, py + 1, cellW - 2, cellH - 2);
+            } else {
+                g.setColor(Color.BLACK);
+                g.drawRect(px, py, cellW - 1, cellH - 1);
+            }
+            BufferedImage sprite = sprites[a & 3];
+            if (sprite != null && (a & 3) != 0) {
+                g.drawImage(sprite, px + (cellW - sprite.getWidth()) / 2, py + (cellH - sprite.getHeight()) / 2, null);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private Color getSquareColor(int x, int y) {
+        if (isTopLeftBase(x, y)) return topBaseHighlight;
+        else if (isBottomRightBase(x, y)) return bottomBaseHighlight;
+        return ((x + y) % 2 == 0) ? lightSquare : darkSquare;
+    }
+
+    private static boolean isTopLeftBase(int x, int y) { return (y >= 0 && y < BASE_SIZE) && (x >= 0 && x <= BASE_SIZE - 1 - y); }
+    private static boolean isBottomRightBase(int x, int y) { return isTopLeftBase((SIZE - 1) - x, (SIZE - 1) - y); }
+
+    // Mesmo desenho do antigo ícone de 48x48 (peça de 36), em escala para 'tamanho'
+    private static BufferedImage criarSprite(Color color, int tamanho, GraphicsConfiguration gc) {
+        int margem = Math.max(2, tamanho / 8);
+        int lado = Math.max(1, tamanho + margem * 2);
+        BufferedImage img = (gc != null) ? gc.createCompatibleImage(lado, lado, Transparency.TRANSLUCENT)
+                                         : new BufferedImage(lado, lado, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        float escala = tamanho / 36f;
+        Color shadowColor = color.equals(Color.BLACK) ? Color.LIGHT_GRAY : Color.BLACK;
+        Color lightColor = color.equals(Color.BLACK) ? Color.WHITE : Color.BLACK;
+        g.setColor(color);
+        g.fillOval(margem, margem, tamanho, tamanho);
+        g.setStroke(new BasicStroke(4f * escala));
+        g.setColor(shadowColor);
+        g.drawOval(margem + 1, margem + 1, tamanho, tamanho);
+        g.setStroke(new BasicStroke(3f * escala));
+        g.setColor(lightColor);
+        g.drawOval(margem, margem, tamanho, tamanho);
+        g.dispose();
+        return img;
+    }
+}
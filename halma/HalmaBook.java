@@ -0,0 +1,123 @@
+package halma;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Livro de aberturas e tabela de finais, lidos de um arquivo binário mapeado em memória (MappedByteBuffer).
+// O arquivo não é carregado no heap: as páginas vêm do page cache do sistema, compartilhado entre
+// vários processos servidores que abram o mesmo arquivo. Gerado pelo HalmaBookBuilder.
+//
+// Formato (big-endian):
+//   cabeçalho (32 bytes): int MAGICO, int VERSAO, int nAbertura, int nFinal, long chaveInicial, long reservado
+//   nAbertura registros e depois nFinal registros, cada seção ordenada pela chave
+//   registro (16 bytes): long chave, byte de, byte para, short valor, int peso
+// A chave é o hash Zobrist do HalmaEngine (peças + lado a jogar); 'chaveInicial' é o hash da posição inicial
+// e detecta um arquivo gerado com outras chaves. Na abertura, 'peso' é quantas vezes a posição apareceu no
+// self-play; no final, 'valor' é o número de meios-lances até a vitória forçada de quem joga.
+final class HalmaBook {
+    static final int MAGICO = 0x484C4D42; // "HLMB"
+    static final int VERSAO = 1;
+    static final int CABECALHO = 32;
+    static final int REGISTRO = 16;
+
+    private final MappedByteBuffer dados;
+    private final int nAbertura;
+    private final int nFinal;
+
+    private HalmaBook(MappedByteBuffer dados, int nAbertura, int nFinal) {
+        this.dados = dados;
+        this.nAbertura = nAbertura;
+        this.nFinal = nFinal;
+    }
+
+    // Mapeia o arquivo somente para leitura (o mapeamento continua válido depois de fechar o canal)
+    static HalmaBook abrir(Path arquivo) throws IOException {
+        try (FileChannel ch = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = ch.size();
+            if (tamanho < CABECALHO) throw new IOException("Arquivo de livro truncado: " + arquivo);
+            if (tamanho > Integer.MAX_VALUE) throw new IOException("Arquivo de livro grande demais: " + arquivo);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            buf.order(ByteOrder.BIG_ENDIAN);
+            if (buf.getInt(0) != MAGICO) throw new IOException("Arquivo de livro invalido: " + arquivo);
+            if (buf.getInt(4) != VERSAO) throw new IOException("Versao de livro nao suportada: " + buf.getInt(4));
+            int nAbertura = buf.getInt(8);
+            int nFinal = buf.getInt(12);
+            if (buf.getLong(16) != chaveInicial()) {
+                throw new IOException("Livro gerado com outras chaves Zobrist: " + arquivo);
+            }
+            if (nAbertura < 0 || nFinal < 0 || tamanho < CABECALHO + (long) (nAbertura + nFinal) * REGISTRO) {
+                throw new IOException("Arquivo de livro truncado: " + arquivo);
+            }
+            return new HalmaBook(buf, nAbertura, nFinal);
+        }
+    }
+
+    // Propriedade -Dhalma.engine.book=arquivo; null se não configurado ou ilegível
+    static HalmaBook fromSystemProperties() {
+        String caminho = System.getProperty("halma.engine.book");
+        if (caminho == null || caminho.isEmpty()) return null;
+        try {
+            HalmaBook livro = abrir(Path.of(caminho));
+            System.out.println("Livro carregado: " + caminho + " (" + livro.nAbertura + " aberturas, "
+                    + livro.nFinal + " finais)");
+            return livro;
+        } catch (IOException e) {
+            System.err.println("Falha ao abrir o livro " + caminho + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static long chaveInicial() {
+        return HalmaEngine.hash(HalmaBoard.BASE_TOP_LEFT, HalmaBoard.BASE_BOTTOM_RIGHT, 1);
+    }
+
+    int getEntradasAbertura() {
+        return nAbertura;
+    }
+
+    int getEntradasFinal() {
+        return nFinal;
+    }
+
+    // Lance do livro para a posição, no formato de moverPecaSequence, ou null se a posição não está no arquivo.
+    // A tabela de finais (exata) tem prioridade sobre a abertura. O lance é revalidado pelo gerador.
+    int[] consultar(long p1, long p2, int lado) {
+        long chave = HalmaEngine.hash(p1, p2, lado);
+        int i = procurar(CABECALHO + (long) nAbertura * REGISTRO, nFinal, chave);
+        if (i < 0) i = procurar(CABECALHO, nAbertura, chave);
+        if (i < 0) return null;
+
+        int de = dados.get(i + 8), para = dados.get(i + 9);
+        long own = (lado == 1) ? p1 : p2;
+        if (de < 0 || para < 0 || (own & (1L << de)) == 0) return null; // Colisão de hash
+        MoveBuffer buf = new MoveBuffer(64);
+        HalmaBoard.gerarMovimentosPeca(de, p1 | p2, buf);
+        int k = buf.indexOfTarget(para & 7, para >>> 3);
+        return (k < 0) ? null : buf.toCoords(k);
+    }
+
+    // Meios-lances até a vitória forçada de 'lado', se a posição está na tabela de finais; -1 caso contrário
+    int vitoriaEm(long p1, long p2, int lado) {
+        int i = procurar(CABECALHO + (long) nAbertura * REGISTRO, nFinal, HalmaEngine.hash(p1, p2, lado));
+        return (i < 0) ? -1 : dados.getShort(i + 10);
+    }
+
+    // Busca binária por leituras absolutas (sem posição compartilhada: seguro entre threads).
+    // Retorna o deslocamento do registro ou -1.
+    private int procurar(long inicio, int n, long chave) {
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int meio = (lo + hi) >>> 1;
+            int off = (int) (inicio + (long) meio * REGISTRO);
+            long k = dados.getLong(off);
+            if (k < chave) lo = meio + 1;
+            else if (k > chave) hi = meio - 1;
+            else return off;
+        }
+        return -1;
+    }
+}
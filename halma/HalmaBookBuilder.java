@@ -0,0 +1,198 @@
+package halma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Gera o arquivo lido pelo HalmaBook a partir de partidas do motor contra ele mesmo.
+//  - Abertura: em cada posição dos primeiros 'plies' meios-lances é gravado o lance de uma busca mais longa.
+//    Para variar as partidas, uma fração dos lances jogados é um avanço aleatório em vez do lance do livro.
+//  - Finais: as últimas posições de cada partida decidida são resolvidas com profundidade fixa; só entram as
+//    posições em que a busca prova vitória forçada de quem joga (valor exato em meios-lances).
+// Enumerar todos os finais para trás (análise retrógrada completa) é inviável com 10 peças por lado;
+// a tabela cobre os finais que o próprio jogo alcança, com resultado exato dentro do horizonte da busca.
+//
+// Uso: java -cp halma.jar halma.HalmaBookBuilder [-out arquivo] [-partidas N] [-plies N] [-tempoMs ms]
+//      [-jogoMs ms] [-variacao f] [-finais N] [-profFinal N] [-seed N]
+public class HalmaBookBuilder {
+    private static final int MAX_PLIES_PARTIDA = 400;
+
+    private String out = "halma-book.bin";
+    private int partidas = 20;
+    private int plies = 10;        // Meios-lances de abertura gravados por partida
+    private long tempoMs = 200;    // Busca de cada posição de abertura
+    private long jogoMs = 20;      // Lances do restante da partida
+    private double variacao = 0.3; // Fração de lances de abertura jogados ao acaso
+    private int finais = 8;        // Posições finais analisadas por partida decidida
+    private int profFinal = 6;     // Profundidade da análise exata dos finais
+    private long seed = 1;
+
+    // chave -> { de, para, valor, peso }
+    private final Map<Long, int[]> abertura = new HashMap<>();
+    private final Map<Long, int[]> finaisResolvidos = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        HalmaBookBuilder b = new HalmaBookBuilder();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.equalsIgnoreCase("-out") && i + 1 < args.length) b.out = args[++i];
+            else if (a.equalsIgnoreCase("-partidas") && i + 1 < args.length) b.partidas = Integer.parseInt(args[++i]);
+            else if (a.equalsIgnoreCase("-plies") && i + 1 < args.length) b.plies = Integer.parseInt(args[++i]);
+            else if (a.equalsIgnoreCase("-tempoMs") && i + 1 < args.length) b.tempoMs = Long.parseLong(args[++i]);
+            else if (a.equalsIgnoreCase("-jogoMs") && i + 1 < args.length) b.jogoMs = Long.parseLong(args[++i]);
+            else if (a.equalsIgnoreCase("-variacao") && i + 1 < args.length) b.variacao = Double.parseDouble(args[++i]);
+            else if (a.equalsIgnoreCase("-finais") && i + 1 < args.length) b.finais = Integer.parseInt(args[++i]);
+            else if (a.equalsIgnoreCase("-profFinal") && i + 1 < args.length) b.profFinal = Integer.parseInt(args[++i]);
+            else if (a.equalsIgnoreCase("-seed") && i + 1 < args.length) b.seed = Long.parseLong(args[++i]);
+        }
+        b.gerar();
+        System.exit(0); // Threads auxiliares dos motores são daemon, mas encerra explicitamente
+    }
+
+    private void gerar() throws IOException {
+        HalmaEngine jogo = new HalmaEngine(18, 1);
+        HalmaEngine analise = HalmaEngine.fromSystemProperties();
+        analise.setLivro(null); // Nunca responde pelo livro que está sendo gerado
+        SplittableRandom rnd = new SplittableRandom(seed);
+        MoveBuffer buf = new MoveBuffer();
+        long inicio = System.nanoTime();
+
+        for (int g = 1; g <= partidas; g++) {
+            BoardSnapshot s = BoardSnapshot.INICIAL;
+            int lado = 1;
+            int vencedor = 0;
+            List<BoardSnapshot> historico = new ArrayList<>();
+
+            for (int ply = 0; ply < MAX_PLIES_PARTIDA; ply++) {
+                int[] lance;
+                if (ply < plies) {
+                    lance = lanceDeAbertura(analise, s, lado);
+                    if (lance != null && rnd.nextDouble() < variacao) lance = avancoAleatorio(s, lado, buf, rnd);
+                } else if (rnd.nextDouble() < variacao / 4) {
+                    lance = avancoAleatorio(s, lado, buf, rnd); // Quebra repetições entre os dois motores
+                } else {
+                    lance = jogo.pensar(s, lado, jogoMs);
+                }
+                if (lance == null) break; // Sem lances: partida travada
+
+                historico.add(s);
+                s = s.mover(lance, lado);
+                if (s.verificarVencedor(lado)) {
+                    vencedor = lado;
+                    break;
+                }
+                lado = 3 - lado;
+            }
+
+            int novosFinais = 0;
+            if (vencedor != 0) {
+                // A partida começa com o lado 1: na posição i do histórico joga o lado 1 se i é par
+                for (int i = historico.size() - 1, n = 0; i >= 0 && n < finais; i--, n++) {
+                    if (resolverFinal(analise, historico.get(i), (i % 2 == 0) ? 1 : 2)) novosFinais++;
+                }
+            }
+            System.out.printf("Partida %d/%d: %d meios-lances, vencedor %d, %d finais resolvidos%n",
+                    g, partidas, historico.size(), vencedor, novosFinais);
+        }
+
+        gravar(Path.of(out));
+        System.out.printf("Livro gravado em %s: %d aberturas, %d finais (%.1f s)%n", out, abertura.size(),
+                finaisResolvidos.size(), (System.nanoTime() - inicio) / 1e9);
+    }
+
+    private int[] lanceDeAbertura(HalmaEngine analise, BoardSnapshot s, int lado) {
+        long chave = HalmaEngine.hash(s.getOcupacao(1), s.getOcupacao(2), lado);
+        int[] e = abertura.get(chave);
+        if (e == null) {
+            int[] lance = analise.pensar(s, lado, tempoMs);
+            if (lance == null) return null;
+            e = new int[] { quadrado(lance, 0), quadrado(lance, lance.length / 2 - 1), analise.getUltimoValor(), 0 };
+            abertura.put(chave, e);
+        }
+        e[3]++;
+        return caminho(s, e[0], e[1]);
+    }
+
+    // Grava a posição se a busca de profundidade fixa provar vitória forçada de 'lado'
+    private boolean resolverFinal(HalmaEngine analise, BoardSnapshot s, int lado) {
+        long chave = HalmaEngine.hash(s.getOcupacao(1), s.getOcupacao(2), lado);
+        if (finaisResolvidos.containsKey(chave)) return false;
+        int[] lance = analise.pensar(s, lado, 3_600_000L, profFinal); // Sem limite prático de tempo
+        int valor = analise.getUltimoValor();
+        if (lance == null || valor < HalmaEngine.LIMIAR_VITORIA) return false;
+        finaisResolvidos.put(chave, new int[] {
+                quadrado(lance, 0), quadrado(lance, lance.length / 2 - 1), HalmaEngine.VITORIA - valor, 0 });
+        return true;
+    }
+
+    private static int[] avancoAleatorio(BoardSnapshot s, int lado, MoveBuffer buf, SplittableRandom rnd) {
+        int n = s.gerarTodosMovimentos(lado, buf);
+        int[] dist = (lado == 1) ? HalmaBoard.DISTANCIA_P1 : HalmaBoard.DISTANCIA_P2;
+        int[] avancos = new int[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (dist[buf.getTo(i)] < dist[buf.getFrom(i)]) avancos[k++] = i;
+        }
+        if (k == 0) return (n == 0) ? null : buf.toCoords(rnd.nextInt(n));
+        return buf.toCoords(avancos[rnd.nextInt(k)]);
+    }
+
+    private static int[] caminho(BoardSnapshot s, int de, int para) {
+        MoveBuffer buf = new MoveBuffer(64);
+        int n = s.gerarMovimentos(de & 7, de >>> 3, buf);
+        int k = buf.indexOfTarget(para & 7, para >>> 3);
+        return (n == 0 || k < 0) ? null : buf.toCoords(k);
+    }
+
+    private static int quadrado(int[] coords, int i) {
+        return (coords[i * 2 + 1] << 3) | coords[i * 2];
+    }
+
+    // Escreve num arquivo temporário e renomeia: quem já mapeou o arquivo antigo continua com ele
+    private void gravar(Path destino) throws IOException {
+        Path dir = destino.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, "halma-book", ".tmp");
+        int total = abertura.size() + finaisResolvidos.size();
+        ByteBuffer buf = ByteBuffer.allocate(HalmaBook.CABECALHO + total * HalmaBook.REGISTRO);
+        buf.putInt(HalmaBook.MAGICO);
+        buf.putInt(HalmaBook.VERSAO);
+        buf.putInt(abertura.size());
+        buf.putInt(finaisResolvidos.size());
+        buf.putLong(HalmaBook.chaveInicial());
+        buf.putLong(0L);
+        escreverSecao(buf, abertura);
+        escreverSecao(buf, finaisResolvidos);
+        buf.flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Registros em ordem crescente de chave (a busca binária do HalmaBook compara como long com sinal)
+    private static void escreverSecao(ByteBuffer buf, Map<Long, int[]> secao) {
+        long[] chaves = new long[secao.size()];
+        int i = 0;
+        for (long k : secao.keySet()) chaves[i++] = k;
+        Arrays.sort(chaves);
+        for (long k : chaves) {
+            int[] e = secao.get(k);
+            buf.putLong(k);
+            buf.put((byte) e[0]);
+            buf.put((byte) e[1]);
+            buf.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, e[2])));
+            buf.putInt(e[3]);
+        }
+    }
+}
@@ -4,44 +4,104 @@ import java.io.*;
 import java.net.*;
 import java.awt.*;
 import java.awt.Point;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javax.swing.*;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import javax.swing.*;
 
-public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
+public class HalmaClient implements IHalmaClient {
     private IHalmaServer server;
     private HalmaGameUI ui;
     private int myId = 0;
+    private int gameId = 0; // Partida (sala) em que este cliente joga
+    private long sessao = 0; // Sessão do assento, repetida em cada chamada ao servidor
     private String playerName;
-    private HalmaBoard boardLocal = new HalmaBoard();
+    private final boolean usarNio; // Transporte binário NIO em vez de RMI
+    // Posição local publicada para a UI; a versão do snapshot ordena os deltas (só se aplicam em sequência).
+    // A UI lê sem lock e sem copiar. Com um lance previsto pendente, é a posição prevista.
+    private final AtomicReference<BoardSnapshot> tabuleiro = new AtomicReference<>(BoardSnapshot.INICIAL);
+
+    // Previsão do lance local: o lance aparece na hora e é reconciliado quando o servidor responde.
+    // A versão do tabuleiro serve de número de sequência: o lance previsto deve produzir 'previsao.getVersao()',
+    // e o servidor devolve essa versão no delta que o confirma (ou um snapshot, se o rejeitar).
+    private BoardSnapshot confirmado = BoardSnapshot.INICIAL; // Última posição autoritativa (guardado por this)
+    private BoardSnapshot previsao;                           // Posição prevista ainda não confirmada
+    private int[] lancePrevisto;
+
+    // Callbacks que chegaram antes de a UI existir (o servidor inicia o jogo assim que o segundo jogador
+    // entra, sem esperar por ela); reaplicados em ordem quando a UI é criada. Só acessado na thread da UI.
+    private final List<Consumer<HalmaGameUI>> pendentesUi = new ArrayList<>();
+
+    // Pedido de snapshot em andamento (nanoTime do pedido, 0 = nenhum): uma rajada de lacunas de versão gera
+    // um único pedido. Sem resposta no prazo (pedido ignorado ou snapshot descartado pela fila) pede de novo.
+    private static final long PRAZO_SNAPSHOT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("halma.client.snapshotTimeoutMs", 2000L));
+    private final AtomicLong snapshotPedidoEm = new AtomicLong();
+
+    // Envios em ordem, fora da thread da UI (a chamada remota não segura a repintura do lance previsto)
+    private final ExecutorService envio = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "halma-envio");
+        t.setDaemon(true);
+        return t;
+    });
 
     @Override
     public void ping() throws RemoteException {
         // Apenas para manter conexão viva ou teste
     }
 
-    // Construtor precisa lançar RemoteException por causa do UnicastRemoteObject
+    // Construtor precisa lançar RemoteException por causa da exportação RMI
     public HalmaClient(String host, int port, String playerName) throws RemoteException {
-        super(); // Exporta este objeto (cliente) para receber callbacks
+        this(host, port, playerName, 0, false);
+    }
+
+    // gameId == 0 usa o matchmaking do servidor; caso contrário tenta entrar na partida indicada
+    public HalmaClient(String host, int port, String playerName, int gameId, boolean usarNio) throws RemoteException {
+        this(host, port, playerName, gameId, usarNio, false);
+    }
+
+    // contraComputador: cria uma partida nova em que o Jogador 2 é o motor do servidor
+    public HalmaClient(String host, int port, String playerName, int gameId, boolean usarNio,
+                       boolean contraComputador) throws RemoteException {
         this.playerName = playerName;
+        this.usarNio = usarNio;
 
         try {
-            String rmiUrl = "rmi://" + host + ":" + port + "/HalmaService";
-            server = (IHalmaServer) Naming.lookup(rmiUrl);
+            if (usarNio) {
+                // Callbacks chegam pela própria conexão NIO; nada é exportado via RMI
+                server = new NioServerProxy(host, port, this);
+            } else {
+                // Exporta este objeto (cliente) para receber callbacks, com os mesmos ajustes de socket do servidor
+                HalmaSocketFactory sockets = HalmaSocketFactory.fromSystemProperties();
+                UnicastRemoteObject.exportObject(this, 0, sockets, sockets);
+                String rmiUrl = "rmi://" + host + ":" + port + "/HalmaService";
+                server = (IHalmaServer) Naming.lookup(rmiUrl);
+            }
 
-            // Registra este cliente no servidor e pega o ID
-            this.myId = server.registrarCliente(this, playerName);
+            // Registra este cliente no servidor e pega a partida e o ID
+            Registration reg = contraComputador ? server.registrarContraComputador(this, playerName)
+                    : (gameId > 0) ? server.entrarNaPartida(this, playerName, gameId)
+                    : server.registrarCliente(this, playerName);
 
-            if (this.myId == -1) {
-                throw new Exception("Servidor cheio ou jogo em andamento.");
+            if (!reg.isAceito()) {
+                throw new Exception("Partida cheia ou inexistente.");
             }
+            this.myId = reg.getPlayerId();
+            this.gameId = reg.getGameId();
+            this.sessao = reg.getSessao();
 
         } catch (Exception e) {
             // Encapsula erro para ser tratado na UI/Launcher
-            throw new RemoteException("Falha ao conectar via RMI: " + e.getMessage(), e);
+            throw new RemoteException("Falha ao conectar via " + getTransporte() + ": " + e.getMessage(), e);
         }
     }
 
@@ -49,108 +109,192 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
         SwingUtilities.invokeLater(() -> {
             ui = new HalmaGameUI(this, playerName);
             ui.setPlayerId(myId);
-            ui.addChatMessage("[Sistema] Conectado via RMI. Voce eh o Jogador " + myId);
+            ui.addChatMessage("[Sistema] Conectado via " + getTransporte() + ". Voce eh o Jogador " + myId + " na partida #" + gameId);
             // Atualiza o board inicial na UI
-            ui.setBoard(boardLocal);
+            ui.setBoard(tabuleiro.get());
+            for (Consumer<HalmaGameUI> acao : pendentesUi) acao.accept(ui);
+            pendentesUi.clear();
+        });
+    }
+
+    // Executa na thread da UI; antes de a UI existir, guarda a ação para initGameUI
+    private void naUi(Consumer<HalmaGameUI> acao) {
+        SwingUtilities.invokeLater(() -> {
+            if (ui != null) acao.accept(ui);
+            else pendentesUi.add(acao);
         });
     }
 
 
-    public void sendMove(List<Point> seq) {
-        if (seq == null || seq.size() < 2) return;
-        try {
-            server.enviarMovimento(myId, seq);
-        } catch (RemoteException e) {
-            ui.addChatMessage("[Erro] Falha ao enviar movimento: " + e.getMessage());
+    // Valida o lance localmente e, se for legal, passa a exibi-lo antes da resposta do servidor.
+    // Retorna a posição prevista (para a UI desenhar na hora) ou null se o lance foi recusado localmente.
+    public BoardSnapshot sendMove(List<Point> seq) {
+        if (seq == null || seq.size() < 2) return null;
+        int[] coords = new int[seq.size() * 2];
+        for (int i = 0; i < seq.size(); i++) {
+            coords[i * 2] = seq.get(i).x;
+            coords[i * 2 + 1] = seq.get(i).y;
+        }
+        BoardSnapshot previsto;
+        synchronized (this) {
+            if (previsao != null) return null; // Um lance por vez: o anterior ainda não foi confirmado
+            previsto = confirmado.mover(coords, myId);
+            if (previsto == null) {
+                if (ui != null) ui.addChatMessage("[Erro] Movimento invalido.");
+                return null;
+            }
+            previsao = previsto;
+            lancePrevisto = coords;
+            tabuleiro.set(previsto);
         }
+        envio.execute(() -> {
+            try {
+                server.enviarMovimento(gameId, myId, sessao, seq);
+            } catch (RemoteException e) {
+                desfazerPrevisao();
+                naUi(ui -> ui.addChatMessage("[Erro] Falha ao enviar movimento: " + e.getMessage()));
+            }
+        });
+        return previsto;
+    }
+
+    // O lance não chegou ao servidor: volta para a posição autoritativa
+    private synchronized void desfazerPrevisao() {
+        if (previsao == null) return;
+        previsao = null;
+        lancePrevisto = null;
+        final BoardSnapshot board = confirmado;
+        tabuleiro.set(board);
+        naUi(ui -> {
+            ui.updateBoardFromModel(board, null);
+            ui.enableTurn();
+        });
     }
 
     public void sendChat(String msg) {
-        try {
-            server.enviarChat(myId, msg);
-        } catch (RemoteException e) {
-            ui.addChatMessage("[Erro] Falha ao enviar chat.");
-        }
+        envio.execute(() -> {
+            try {
+                server.enviarChat(gameId, myId, sessao, msg);
+            } catch (RemoteException e) {
+                naUi(ui -> ui.addChatMessage("[Erro] Falha ao enviar chat."));
+            }
+        });
     }
 
     public int getMyId() {
         return myId;
     }
 
-    public HalmaBoard getBoardCopy() {
-        // Retorna uma cópia do estado local
-        return new HalmaBoard(boardLocal);
+    public int getGameId() {
+        return gameId;
+    }
+
+    private String getTransporte() {
+        return usarNio ? "NIO" : "RMI";
+    }
+
+    // Posição atual (imutável: pode ser consultada de qualquer thread)
+    public BoardSnapshot getBoard() {
+        return tabuleiro.get();
     }
 
     // --- Métodos RMI (Callbacks vindos do Servidor) ---
 
     @Override
     public void receberMensagem(String msg) throws RemoteException {
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) ui.addChatMessage(msg);
-        });
+        naUi(ui -> ui.addChatMessage(msg));
     }
 
     @Override
-    public void atualizarTabuleiro(HalmaBoard newBoard, Point lastMove) throws RemoteException {
-        this.boardLocal = newBoard; // Atualiza estado local
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) {
-                ui.setBoard(newBoard); // Importante para a UI saber o estado atual
-                ui.updateBoardFromModel(newBoard, lastMove);
+    public synchronized void atualizarEstado(GameStateEvent evento) throws RemoteException {
+        BoardSnapshot atual = confirmado;
+        BoardSnapshot next;
+        if (evento.isSnapshot()) {
+            next = evento.getTabuleiro();
+            snapshotPedidoEm.set(0L);
+        } else if (evento.getCaminho() != null) {
+            if (evento.getVersao() <= atual.getVersao()) return; // Delta repetido ou antigo
+            next = null;
+            if (evento.getVersao() == atual.getVersao() + 1) {
+                int[] caminho = evento.getCaminho();
+                next = atual.mover(caminho, atual.getCell(caminho[0], caminho[1]));
             }
-        });
-    }
+        } else {
+            // Evento sem mudança de tabuleiro: só vale sobre a mesma versão
+            next = (evento.getVersao() == atual.getVersao()) ? atual : null;
+        }
 
-    @Override
-    public void atualizarPlacar(int p1Moves, int p2Moves) throws RemoteException {
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) {
-                ui.updateScore(p1Moves, p2Moves);
+        if (next == null) {
+            // Lacuna de versão (ou delta inconsistente): pede o snapshot completo, se não há pedido no prazo.
+            // Feito no executor de envio para não bloquear o servidor que está nos chamando.
+            long pedido = snapshotPedidoEm.get();
+            long agora = System.nanoTime() | 1L; // Nunca 0
+            if ((pedido == 0L || agora - pedido > PRAZO_SNAPSHOT_NANOS) && snapshotPedidoEm.compareAndSet(pedido, agora)) {
+                envio.execute(() -> {
+                    try {
+                        server.solicitarTabuleiro(gameId, myId, sessao);
+                    } catch (RemoteException e) {
+                        snapshotPedidoEm.compareAndSet(agora, 0L);
+                        System.err.println("Falha ao solicitar tabuleiro: " + e.getMessage());
+                    }
+                });
             }
-        });
-    }
-
-    @Override
-    public void definirTurno(boolean meuTurno) throws RemoteException {
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) {
-                if (meuTurno) ui.enableTurn();
-                else ui.disableTurn();
+            return;
+        }
+        confirmado = next;
+
+        // Reconciliação: o delta da versão prevista ou um snapshot (rejeição) resolve a previsão pendente.
+        // Em qualquer caso passa a valer a posição autoritativa; se ela é a prevista, nada muda na tela.
+        BoardSnapshot exibido = next;
+        Point ultimo = evento.getLastMove();
+        if (previsao != null) {
+            if (!evento.isSnapshot() && next.getVersao() < previsao.getVersao()) {
+                exibido = previsao; // A resposta ao nosso lance ainda não chegou
+                ultimo = new Point(lancePrevisto[lancePrevisto.length - 2], lancePrevisto[lancePrevisto.length - 1]);
+            } else {
+                previsao = null;
+                lancePrevisto = null;
             }
-        });
-    }
-
-    @Override
-    public void notificarFimDeJogo(int idVencedor) throws RemoteException {
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) {
-                ui.showWin(idVencedor);
-                ui.disableTurn();
-                // APÓS mostrar a vitória, solicita o reinício ao servidor.
-                try {
-                    server.solicitarReinicio(myId);
-                } catch (RemoteException ex) {
-                    // Ignora, o servidor pode ter caído.
-                }
+        }
+        tabuleiro.set(exibido);
+
+        // Aplica tabuleiro, turno, placar e fim de jogo de uma vez na thread da UI
+        final BoardSnapshot board = exibido;
+        final Point lastMove = ultimo;
+        final boolean pendente = previsao != null;
+        naUi(ui -> {
+            ui.updateBoardFromModel(board, lastMove); // Também guarda o estado atual na UI
+            ui.updateScore(evento.getP1Moves(), evento.getP2Moves());
+            // myId é lido aqui: o primeiro evento pode chegar antes de o registro voltar
+            if (evento.getTurno() == myId && !pendente) ui.enableTurn();
+            else ui.disableTurn();
+            if (evento.getVencedor() != 0) {
+                ui.showWin(evento.getVencedor());
+                // APÓS mostrar a vitória, solicita o reinício ao servidor (fora da thread da UI)
+                final int id = myId;
+                envio.execute(() -> {
+                    try {
+                        server.solicitarReinicio(gameId, id, sessao);
+                    } catch (RemoteException ex) {
+                        // Ignora, o servidor pode ter caído.
+                    }
+                });
             }
         });
     }
 
     @Override
     public void notificarInicioJogo(String p1Name, String p2Name) throws RemoteException {
-        SwingUtilities.invokeLater(() -> {
-            if (ui != null) {
-                ui.setPlayerNameLabel(1, p1Name);
-                ui.setPlayerNameLabel(2, p2Name);
-            }
+        naUi(ui -> {
+            ui.setPlayerNameLabel(1, p1Name);
+            ui.setPlayerNameLabel(2, p2Name);
         });
     }
 
     public void disconnect() {
         try {
             if (server != null && myId != 0) {
-                server.desconectar(myId);
+                server.desconectar(gameId, myId, sessao);
             }
         } catch (RemoteException e) {
             // Servidor já pode ter caído, apenas ignora
@@ -160,16 +304,22 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
 
     // --- Launcher Integrado (Main) ---
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            final String host = (args.length > 0) ? args[0] : "localhost";
-            showInitialScreen(host);
-        });
+        // Argumentos: [host] [-nio]
+        String hostArg = "localhost";
+        boolean nio = false;
+        for (String a : args) {
+            if (a.equalsIgnoreCase("-nio")) nio = true;
+            else if (!a.startsWith("-")) hostArg = a;
+        }
+        final String host = hostArg;
+        final boolean usarNio = nio;
+        SwingUtilities.invokeLater(() -> showInitialScreen(host, usarNio));
     }
 
-    private static void showInitialScreen(String host) {
+    private static void showInitialScreen(String host, boolean usarNio) {
         final JFrame frame = new JFrame("Halma Online - Conexao");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(420, 450);
+        frame.setSize(420, 490);
         frame.setLayout(new BorderLayout(10, 10));
         frame.setLocationRelativeTo(null);
 
@@ -241,6 +391,14 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
         gbc.weightx = 0.3;
         inputPanel.add(portField, gbc);
 
+        final JCheckBox computerCheck = new JCheckBox("Jogar contra o computador");
+        computerCheck.setBackground(bgColor);
+        computerCheck.setForeground(fgColor);
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        gbc.weightx = 0;
+        inputPanel.add(computerCheck, gbc);
+
         final JButton connectButton = new JButton("CONECTAR");
         connectButton.setBackground(accentColor.darker());
         connectButton.setForeground(fgColor);
@@ -271,6 +429,7 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
             final String name = nameField.getText().trim();
             final String hostLocal = hostField.getText().trim();
             final String portStr = portField.getText().trim();
+            final boolean contraComputador = computerCheck.isSelected();
 
             if (name.isEmpty() || name.length() < 3) {
                 SwingUtilities.invokeLater(() -> {
@@ -299,13 +458,14 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
                 nameField.setEnabled(false);
                 hostField.setEnabled(false);
                 portField.setEnabled(false);
+                computerCheck.setEnabled(false);
                 statusLabel.setText("Status: Tentando conectar a " + hostLocal + ":" + portLocal + "...");
                 statusLabel.setForeground(Color.YELLOW);
             });
 
             new Thread(() -> {
                 try {
-                    HalmaClient client = new HalmaClient(hostLocal, portLocal, name);
+                    HalmaClient client = new HalmaClient(hostLocal, portLocal, name, 0, usarNio, contraComputador);
                     SwingUtilities.invokeLater(() -> {
                         frame.dispose();
                         client.initGameUI();
@@ -318,6 +478,7 @@ public class HalmaClient extends UnicastRemoteObject implements IHalmaClient {
                         nameField.setEnabled(true);
                         hostField.setEnabled(true);
                         portField.setEnabled(true);
+                        computerCheck.setEnabled(true);
                     });
                     System.err.println("Falha na conexão: " + e.getMessage());
                 }
@@ -0,0 +1,438 @@
+package halma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Motor de jogo: alfa-beta (negamax) com aprofundamento iterativo sobre os bitboards do HalmaBoard.
+// - Hash de Zobrist atualizado incrementalmente a cada lance
+// - Tabela de transposição de tamanho fixo (TranspositionTable), compartilhada entre buscas
+// - Ordenação: lance da tabela, lances assassinos (killers) e depois pelo avanço em direção ao alvo
+// - Orçamento de tempo por lance: a busca é interrompida e devolve o melhor da última iteração
+// - Busca paralela no estilo Lazy SMP: várias threads pesquisam a mesma raiz, cada uma com seu próprio
+//   estado, e cooperam apenas pela tabela de transposição compartilhada (sem locks). As auxiliares
+//   ímpares começam uma profundidade à frente para espalhar o trabalho entre iterações.
+//   As auxiliares vêm de um pool de no máximo threads - 1 threads, dividido por todas as buscas simultâneas:
+//   quando está ocupado, a busca segue com as auxiliares que conseguiu (ou só com a principal).
+// Avaliação: soma das distâncias ao canto alvo (P1: 14 - x - y, P2: x + y), do ponto de vista de quem joga.
+// As somas partem dos contadores do BoardSnapshot e são atualizadas a cada lance, sem percorrer as peças.
+//
+// Uma instância pode ser usada por várias threads ao mesmo tempo (cada chamada de pensar() tem seu estado).
+final class HalmaEngine {
+    static final int VITORIA = 30000;
+    static final int LIMIAR_VITORIA = VITORIA - 1000;
+    private static final int MAX_PLY = 64;
+
+    // Zobrist: uma chave por (jogador, casa) e uma para o lado a jogar
+    private static final long[][] ZOBRIST = new long[3][64];
+    private static final long ZOBRIST_LADO;
+
+    // Distância de cada casa ao canto alvo de cada jogador (tabelas do HalmaBoard)
+    private static final int[][] DISTANCIA = { null, HalmaBoard.DISTANCIA_P1, HalmaBoard.DISTANCIA_P2 };
+    private static final long[] ALVO = { 0L, HalmaBoard.BASE_BOTTOM_RIGHT, HalmaBoard.BASE_TOP_LEFT };
+
+    static {
+        SplittableRandom rnd = new SplittableRandom(0x4A4C4D41L); // Semente fixa: hashes iguais entre execuções
+        for (int p = 1; p <= 2; p++) {
+            for (int sq = 0; sq < 64; sq++) ZOBRIST[p][sq] = rnd.nextLong();
+        }
+        ZOBRIST_LADO = rnd.nextLong();
+    }
+
+    private final TranspositionTable tt;
+    private final AtomicInteger geracao = new AtomicInteger();
+    private final int threads;
+    private final ExecutorService auxiliares; // Threads auxiliares do Lazy SMP, limitadas (null com 1 thread)
+    // Pilhas de busca por thread, reaproveitadas entre chamadas de pensar() (os pools mantêm as threads)
+    private final ThreadLocal<Pilha> pilhas = ThreadLocal.withInitial(Pilha::new);
+    private volatile HalmaBook livro;          // Aberturas e finais resolvidos (opcional)
+
+    // Estatísticas da última busca concluída (informativas)
+    private volatile int ultimaProfundidade;
+    private volatile long ultimosNos;
+    private volatile int ultimoValor;
+
+    HalmaEngine(int ttBits) {
+        this(ttBits, 1);
+    }
+
+    HalmaEngine(int ttBits, int threads) {
+        this.tt = new TranspositionTable(ttBits);
+        this.threads = Math.max(1, threads);
+        if (this.threads > 1) {
+            AtomicInteger seq = new AtomicInteger();
+            this.auxiliares = new ThreadPoolExecutor(0, this.threads - 1, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), r -> {
+                        Thread t = new Thread(r, "halma-engine-smp-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        } else {
+            this.auxiliares = null;
+        }
+    }
+
+    // Configuração por propriedades de sistema:
+    // -Dhalma.engine.ttBits=... (2^bits entradas de 16 bytes), -Dhalma.engine.threads=... (threads por busca)
+    // e -Dhalma.engine.book=... (arquivo gerado pelo HalmaBookBuilder)
+    static HalmaEngine fromSystemProperties() {
+        return fromSystemProperties(Runtime.getRuntime().availableProcessors());
+    }
+
+    // Como fromSystemProperties(), com 'threadsPadrao' quando -Dhalma.engine.threads não é informado
+    static HalmaEngine fromSystemProperties(int threadsPadrao) {
+        HalmaEngine engine = new HalmaEngine(Integer.getInteger("halma.engine.ttBits", 20),
+                Integer.getInteger("halma.engine.threads", threadsPadrao));
+        engine.setLivro(HalmaBook.fromSystemProperties());
+        return engine;
+    }
+
+    void setLivro(HalmaBook livro) {
+        this.livro = livro;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    void limparTabela() {
+        tt.limpar();
+    }
+
+    static long hash(long p1, long p2, int lado) {
+        long h = (lado == 2) ? ZOBRIST_LADO : 0L;
+        for (long b = p1; b != 0; b &= b - 1) h ^= ZOBRIST[1][Long.numberOfTrailingZeros(b)];
+        for (long b = p2; b != 0; b &= b - 1) h ^= ZOBRIST[2][Long.numberOfTrailingZeros(b)];
+        return h;
+    }
+
+    // Escolhe um lance para 'player' em até 'tempoMs' milissegundos.
+    // Retorna o caminho no formato de moverPecaSequence ([x1, y1, x2, y2, ...]) ou null se não houver lance.
+    int[] pensar(BoardSnapshot board, int player, long tempoMs) {
+        return pensar(board, player, tempoMs, MAX_PLY);
+    }
+
+    int[] pensar(HalmaBoard board, int player, long tempoMs) {
+        return pensar(BoardSnapshot.de(board, 0), player, tempoMs, MAX_PLY);
+    }
+
+    int[] pensar(HalmaBoard board, int player, long tempoMs, int profundidadeMax) {
+        return pensar(BoardSnapshot.de(board, 0), player, tempoMs, profundidadeMax);
+    }
+
+    // Como pensar(board, player, tempoMs), parando também ao completar 'profundidadeMax'
+    int[] pensar(BoardSnapshot board, int player, long tempoMs, int profundidadeMax) {
+        long p1 = board.getOcupacao(1), p2 = board.getOcupacao(2);
+        HalmaBook l = livro;
+        if (l != null) {
+            int[] lance = l.consultar(p1, p2, player);
+            if (lance != null) { // Posição conhecida: responde sem buscar
+                ultimaProfundidade = 0;
+                ultimosNos = 0;
+                ultimoValor = 0;
+                return lance;
+            }
+        }
+        int d1 = board.getDistanciaAoAlvo(1), d2 = board.getDistanciaAoAlvo(2);
+        long prazo = System.nanoTime() + tempoMs * 1_000_000L;
+        int ger = geracao.incrementAndGet();
+        Controle controle = new Controle();
+        int maxProf = Math.min(profundidadeMax, MAX_PLY);
+
+        Busca principal = new Busca(p1, p2, d1, d2, player, prazo, ger, controle, 1, maxProf);
+        List<Busca> buscas = new ArrayList<>(threads);
+        List<Future<?>> futuros = new ArrayList<>(threads - 1);
+        buscas.add(principal);
+        for (int i = 1; i < threads; i++) {
+            Busca aux = new Busca(p1, p2, d1, d2, player, prazo, ger, controle, 1 + (i & 1), MAX_PLY);
+            try {
+                futuros.add(auxiliares.submit(aux::executar));
+            } catch (RejectedExecutionException e) {
+                break; // Auxiliares ocupadas com outras buscas
+            }
+            buscas.add(aux);
+        }
+
+        principal.executar();
+        controle.parar = true; // A principal decide quando a busca acaba
+        for (Future<?> f : futuros) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("Falha numa thread auxiliar do motor: " + e.getCause());
+            }
+        }
+
+        // Usa o resultado da thread que completou a maior profundidade (a principal em caso de empate)
+        Busca escolhida = principal;
+        long nos = 0;
+        for (Busca b : buscas) {
+            nos += b.nos;
+            if (b.profundidadeConcluida > escolhida.profundidadeConcluida && b.resultado != null) escolhida = b;
+        }
+        ultimaProfundidade = escolhida.profundidadeConcluida;
+        ultimosNos = nos;
+        ultimoValor = escolhida.valorRaiz;
+        return escolhida.resultado;
+    }
+
+    int getUltimaProfundidade() {
+        return ultimaProfundidade;
+    }
+
+    long getUltimosNos() {
+        return ultimosNos;
+    }
+
+    int getUltimoValor() {
+        return ultimoValor;
+    }
+
+    static boolean venceu(long pecas, int lado) {
+        return (pecas & ALVO[lado]) == ALVO[lado];
+    }
+
+    // Sinal de parada compartilhado pelas threads de uma mesma busca
+    private static final class Controle {
+        volatile boolean parar = false;
+    }
+
+    // Buffers de lances, ordenação e killers de cada ply: alocados uma vez por thread
+    private static final class Pilha {
+        final MoveBuffer[] buffers = new MoveBuffer[MAX_PLY + 1];
+        final int[][] ordem = new int[MAX_PLY + 1][];
+        final int[][] chaves = new int[MAX_PLY + 1][];
+        final int[][] killers = new int[MAX_PLY + 1][2];
+
+        Pilha() {
+            for (int i = 0; i <= MAX_PLY; i++) {
+                buffers[i] = new MoveBuffer();
+                ordem[i] = new int[256];
+                chaves[i] = new int[256];
+            }
+        }
+
+        // Killers são da busca anterior (outra posição); buffers e ordem são sobrescritos a cada nó
+        void reiniciar() {
+            for (int[] k : killers) k[0] = k[1] = TranspositionTable.SEM_LANCE;
+        }
+    }
+
+    // Estado de uma busca (uma thread); as pilhas vêm da thread que a executa
+    private final class Busca {
+        private final long raizP1, raizP2;
+        private final int raizDist1, raizDist2;
+        private final int raizLado;
+        private final long prazo;
+        private final int geracaoBusca;
+        private final Controle controle;
+        private final int profundidadeInicial;
+        private final int profundidadeMax;
+
+        private MoveBuffer[] buffers;
+        private int[][] ordem;
+        private int[][] chaves;
+        private int[][] killers;
+
+        private long nos = 0;
+        private boolean parar = false;
+        private int profundidadeConcluida = 0;
+        private int valorRaiz = 0;
+        private int[] resultado;
+
+        Busca(long p1, long p2, int dist1, int dist2, int lado, long prazo, int geracaoBusca, Controle controle,
+              int profundidadeInicial, int profundidadeMax) {
+            this.raizP1 = p1;
+            this.raizP2 = p2;
+            this.raizDist1 = dist1;
+            this.raizDist2 = dist2;
+            this.raizLado = lado;
+            this.prazo = prazo;
+            this.geracaoBusca = geracaoBusca;
+            this.controle = controle;
+            this.profundidadeInicial = profundidadeInicial;
+            this.profundidadeMax = profundidadeMax;
+        }
+
+        void executar() {
+            Pilha pilha = pilhas.get();
+            pilha.reiniciar();
+            buffers = pilha.buffers;
+            ordem = pilha.ordem;
+            chaves = pilha.chaves;
+            killers = pilha.killers;
+            long own = (raizLado == 1) ? raizP1 : raizP2;
+            long opp = (raizLado == 1) ? raizP2 : raizP1;
+            long h = hash(raizP1, raizP2, raizLado);
+            int minha = (raizLado == 1) ? raizDist1 : raizDist2;
+            int dele = (raizLado == 1) ? raizDist2 : raizDist1;
+            int[] dist = DISTANCIA[raizLado];
+
+            MoveBuffer raiz = buffers[0];
+            raiz.clear();
+            HalmaBoard.gerarTodosMovimentos(own, own | opp, raiz);
+            int n = raiz.size();
+            if (n == 0) return;
+
+            int melhor = 0;
+            for (int prof = profundidadeInicial; prof <= profundidadeMax; prof++) {
+                int melhorIteracao = -1;
+                int alfa = -VITORIA - 1, beta = VITORIA + 1;
+                int[] idx = ordenar(0, n, raiz, own, opp, raizLado, codigo(raiz, melhor));
+                for (int k = 0; k < n; k++) {
+                    int i = idx[k];
+                    int de = raiz.getFrom(i), para = raiz.getTo(i);
+                    long mov = (1L << de) | (1L << para);
+                    long h2 = h ^ ZOBRIST[raizLado][de] ^ ZOBRIST[raizLado][para] ^ ZOBRIST_LADO;
+                    int v;
+                    if (venceu(own ^ mov, raizLado)) v = VITORIA - 1;
+                    else v = -buscar(opp, own ^ mov, 3 - raizLado, h2, prof - 1, -beta, -alfa, 1,
+                            dele, minha + dist[para] - dist[de]);
+                    if (parar) break;
+                    if (v > alfa) {
+                        alfa = v;
+                        melhorIteracao = i;
+                    }
+                }
+                // Mesmo numa iteração interrompida o resultado parcial vale: o melhor lance anterior é
+                // pesquisado primeiro, então qualquer lance que o superou é ao menos tão bom quanto ele
+                if (melhorIteracao >= 0) {
+                    melhor = melhorIteracao;
+                    valorRaiz = alfa;
+                }
+                resultado = raiz.toCoords(melhor);
+                if (parar) break;
+                profundidadeConcluida = prof;
+                if (Math.abs(valorRaiz) >= LIMIAR_VITORIA) break; // Vitória/derrota forçada encontrada
+            }
+        }
+
+        // Negamax com poda alfa-beta; 'own' é o lado a jogar, 'minha'/'dele' as somas de distâncias ao alvo
+        private int buscar(long own, long opp, int lado, long h, int prof, int alfa, int beta, int ply,
+                           int minha, int dele) {
+            if ((++nos & 1023) == 0 && (controle.parar || System.nanoTime() > prazo)) parar = true;
+            if (parar) return 0;
+            if (prof <= 0 || ply >= MAX_PLY) return dele - minha;
+
+            int alfaOriginal = alfa;
+            int lanceTabela = TranspositionTable.SEM_LANCE;
+            long e = tt.consultar(h);
+            if (e != 0) {
+                lanceTabela = TranspositionTable.lance(e);
+                if (TranspositionTable.profundidade(e) >= prof) {
+                    int v = deTabela(TranspositionTable.valor(e), ply);
+                    int tipo = TranspositionTable.tipo(e);
+                    if (tipo == TranspositionTable.EXATO) return v;
+                    if (tipo == TranspositionTable.INFERIOR && v >= beta) return v;
+                    if (tipo == TranspositionTable.SUPERIOR && v <= alfa) return v;
+                }
+            }
+
+            MoveBuffer buf = buffers[ply];
+            buf.clear();
+            HalmaBoard.gerarTodosMovimentos(own, own | opp, buf);
+            int n = buf.size();
+            if (n == 0) return dele - minha;
+
+            int[] idx = ordenar(ply, n, buf, own, opp, lado, lanceTabela);
+            int melhorValor = -VITORIA - 1;
+            int melhorLance = TranspositionTable.SEM_LANCE;
+            for (int k = 0; k < n; k++) {
+                int i = idx[k];
+                int de = buf.getFrom(i), para = buf.getTo(i);
+                long novo = own ^ ((1L << de) | (1L << para));
+                int v;
+                if (venceu(novo, lado)) {
+                    v = VITORIA - ply - 1;
+                } else {
+                    long h2 = h ^ ZOBRIST[lado][de] ^ ZOBRIST[lado][para] ^ ZOBRIST_LADO;
+                    int[] dist = DISTANCIA[lado];
+                    v = -buscar(opp, novo, 3 - lado, h2, prof - 1, -beta, -alfa, ply + 1,
+                            dele, minha + dist[para] - dist[de]);
+                }
+                if (parar) return 0;
+                if (v > melhorValor) {
+                    melhorValor = v;
+                    melhorLance = (de << 6) | para;
+                }
+                if (v > alfa) alfa = v;
+                if (alfa >= beta) {
+                    guardarKiller(ply, melhorLance);
+                    break;
+                }
+            }
+
+            int tipo = (melhorValor <= alfaOriginal) ? TranspositionTable.SUPERIOR
+                     : (melhorValor >= beta) ? TranspositionTable.INFERIOR
+                     : TranspositionTable.EXATO;
+            tt.gravar(h, paraTabela(melhorValor, ply), prof, tipo, melhorLance, geracaoBusca);
+            return melhorValor;
+        }
+
+        // Ordena os índices do buffer: lance da tabela, killers, depois maior avanço
+        private int[] ordenar(int ply, int n, MoveBuffer buf, long own, long opp, int lado, int lanceTabela) {
+            if (ordem[ply].length < n) {
+                ordem[ply] = new int[n * 2];
+                chaves[ply] = new int[n * 2];
+            }
+            int[] idx = ordem[ply];
+            int[] chave = chaves[ply];
+            int[] dist = DISTANCIA[lado];
+            for (int i = 0; i < n; i++) {
+                int de = buf.getFrom(i), para = buf.getTo(i);
+                int c = (de << 6) | para;
+                int s = (dist[de] - dist[para]) * 16;
+                if (c == lanceTabela) s += 1 << 20;
+                else if (c == killers[ply][0]) s += 1 << 16;
+                else if (c == killers[ply][1]) s += 1 << 15;
+                idx[i] = i;
+                chave[i] = s;
+            }
+            // Inserção: listas curtas e quase ordenadas pela ordem do gerador
+            for (int i = 1; i < n; i++) {
+                int vi = idx[i], ki = chave[vi];
+                int j = i - 1;
+                while (j >= 0 && chave[idx[j]] < ki) {
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                idx[j + 1] = vi;
+            }
+            return idx;
+        }
+
+        private void guardarKiller(int ply, int lance) {
+            if (killers[ply][0] != lance) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = lance;
+            }
+        }
+
+        private int codigo(MoveBuffer buf, int i) {
+            return (buf.getFrom(i) << 6) | buf.getTo(i);
+        }
+    }
+
+    // Valores de vitória são guardados relativos ao nó (independentes da distância até a raiz)
+    private static int paraTabela(int v, int ply) {
+        if (v >= LIMIAR_VITORIA) return v + ply;
+        if (v <= -LIMIAR_VITORIA) return v - ply;
+        return v;
+    }
+
+    private static int deTabela(int v, int ply) {
+        if (v >= LIMIAR_VITORIA) return v - ply;
+        if (v <= -LIMIAR_VITORIA) return v + ply;
+        return v;
+    }
+}
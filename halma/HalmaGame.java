@@ -0,0 +1,472 @@
+package halma;
+
+import java.awt.Point;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Uma partida (sala) independente hospedada pelo HalmaServer.
+// Cada partida é um ator: as chamadas do servidor viram comandos na sua GameMailbox, aplicados um por vez
+// e em ordem numa thread do pool de partidas, sem lock no estado. Comandos sem resposta (lance, chat,
+// reinício, saída) só enfileiram; os que devolvem algo (entrar) esperam a vez com pedir().
+// Os eventos saem do próprio comando: callbacks são enfileirados nas ClientOutbox dos jogadores
+// (em ordem, sem bloquear) e entregues pelo CallbackDispatcher.
+// O tabuleiro é publicado como BoardSnapshot imutável: só o ator troca a referência,
+// e leitores consultam getTabuleiro() sem lock.
+// Cada mudança de estado também é anotada no GameJournal (só enfileirada; a gravação é assíncrona).
+// Espectadores recebem os mesmos eventos pelo SpectatorGroup, codificados uma única vez por evento.
+// Cada assento ocupado tem uma sessão aleatória (devolvida no Registration); comandos de jogo com
+// sessão diferente da do assento são ignorados, então um cliente não age pelo assento de outro.
+class HalmaGame {
+    private static final int CAPACIDADE_ESPECTADOR = Integer.getInteger("halma.spectator.queueCapacity", 64);
+    private static final SecureRandom SESSOES = new SecureRandom();
+    // Tempo para os jogadores de uma partida recuperada voltarem antes de os assentos serem liberados
+    private static final long RESERVA_MS = Long.getLong("halma.journal.reservaMs", 300_000L);
+
+    private final int id;
+    private final HalmaServer server;
+    private final CallbackDispatcher dispatcher;
+    private final HeartbeatService heartbeat;
+    private final GameJournal journal;
+    private final GameMailbox mailbox;
+    private final SpectatorGroup plateia;
+
+    private ClientOutbox player1;
+    private ClientOutbox player2;
+    private HeartbeatService.Session hb1, hb2;
+    private String p1Name, p2Name;
+    private final long[] sessoes = new long[3]; // Sessão de cada assento (0 = livre)
+
+    // Posição atual; a versão cresce a cada tabuleiro novo ou movimento aceito
+    private final AtomicReference<BoardSnapshot> tabuleiro = new AtomicReference<>(BoardSnapshot.INICIAL);
+    private int currentTurn = 1;
+    private boolean gameActive = false;
+    private int p1Moves = 0, p2Moves = 0;
+    private boolean encerrada = false; // Partida removida do servidor (ficou vazia)
+    private boolean contraComputador = false; // Assento 2 ocupado pelo EnginePlayer
+    // Partida recuperada do journal: os assentos ficam reservados aos nomes originais e, quando os dois
+    // voltam, o jogo continua de onde parou em vez de começar um tabuleiro novo
+    private final String[] reservas = new String[3];
+    private boolean retomada = false;
+    private volatile int conectados = 0; // Para as métricas, lidas fora do ator
+
+    HalmaGame(int id, HalmaServer server, CallbackDispatcher dispatcher, HeartbeatService heartbeat,
+              GameJournal journal, Executor executor) {
+        this.id = id;
+        this.server = server;
+        this.dispatcher = dispatcher;
+        this.heartbeat = heartbeat;
+        this.journal = journal;
+        this.mailbox = new GameMailbox(executor, "Partida " + id);
+        this.plateia = new SpectatorGroup(dispatcher, CAPACIDADE_ESPECTADOR, mailbox::executar, this::snapshotCodificado);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    // Ocupa o primeiro assento livre. O registro traz o assento (1 ou 2, ou -1 se a partida estiver
+    // cheia/encerrada) e a sessão dele.
+    // Com os dois assentos ocupados o jogo começa no mesmo comando: os eventos de início já ficam na fila
+    // do jogador antes de o registro voltar para ele (o cliente os guarda até a UI existir).
+    Registration adicionarJogador(IHalmaClient client, String name) {
+        return mailbox.pedir(() -> sentarEIniciar(client, name, false));
+    }
+
+    // Ocupa o assento 2 com o motor (a partida passa a ser contra o computador)
+    Registration adicionarComputador(EnginePlayer engine) {
+        return mailbox.pedir(() -> sentarEIniciar(engine, EnginePlayer.NOME, true));
+    }
+
+    private Registration sentarEIniciar(IHalmaClient client, String name, boolean computador) {
+        int playerId = sentar(client, name, computador);
+        if (playerId == -1) return new Registration(id, -1);
+        if (player1 != null && player2 != null && !gameActive) iniciarJogo();
+        return new Registration(id, playerId, sessoes[playerId]);
+    }
+
+    private int sentar(IHalmaClient client, String name, boolean computador) {
+        if (encerrada) return -1;
+        int playerId;
+        if (player1 == null && livre(1, name)) {
+            player1 = criarOutbox(client, 1);
+            p1Name = name;
+            playerId = 1;
+        } else if (player2 == null && livre(2, name)) {
+            player2 = criarOutbox(client, 2);
+            p2Name = name;
+            playerId = 2;
+            if (computador) contraComputador = true;
+        } else {
+            return -1;
+        }
+        reservas[playerId] = null;
+        long sessao;
+        do {
+            sessao = SESSOES.nextLong();
+        } while (sessao == 0L);
+        sessoes[playerId] = sessao;
+        conectados = (player1 != null ? 1 : 0) + (player2 != null ? 1 : 0);
+        System.out.println("[Partida " + id + "] Jogador " + playerId + " conectado: " + name);
+        if (player1 != null && player2 == null) {
+            player1.enviar("receberMensagem", c -> c.receberMensagem("Aguardando Jogador 2..."));
+        }
+        journal.jogador(id, playerId, computador, name);
+        return playerId;
+    }
+
+    // Assento sem reserva, ou reservado para este nome
+    private boolean livre(int playerId, String name) {
+        return reservas[playerId] == null || reservas[playerId].equals(name);
+    }
+
+    // Reconstrói a partida em andamento lida do journal; os jogadores voltam pelo nome
+    void restaurar(GameJournal.PartidaRecuperada r) {
+        mailbox.executar(() -> {
+            tabuleiro.set(r.tabuleiro);
+            currentTurn = r.turno;
+            p1Moves = r.p1Moves;
+            p2Moves = r.p2Moves;
+            reservas[1] = r.nomes[1];
+            reservas[2] = r.nomes[2];
+            retomada = true;
+        });
+        dispatcher.agendarEm(() -> mailbox.executar(this::expirarReservas), RESERVA_MS);
+    }
+
+    // Quem não voltou a tempo perde o assento. Sem ninguém de volta a partida acaba; com um jogador
+    // esperando, o assento vago vai para o matchmaking e o jogo recomeça com o novo oponente.
+    private void expirarReservas() {
+        if (encerrada || !retomada || (reservas[1] == null && reservas[2] == null)) return;
+        liberarReservas();
+        retomada = false;
+        System.out.println("[Partida " + id + "] Reserva expirada: assentos liberados");
+        if (player1 == null) {
+            if (contraComputador) {
+                player2.fechar();
+                hb2.cancelar();
+                player2 = null;
+                sessoes[2] = 0L;
+                conectados = 0;
+            }
+            if (player2 == null) {
+                encerrada = true;
+                journal.encerrada(id);
+                plateia.fechar();
+                server.partidaEncerrada(this);
+                return;
+            }
+        }
+        server.partidaComVaga(this);
+    }
+
+    private void liberarReservas() {
+        for (int assento = 1; assento <= 2; assento++) {
+            if (reservas[assento] != null) server.reservaLiberada(reservas[assento], id);
+            reservas[assento] = null;
+        }
+    }
+
+    // Inscreve um espectador; o snapshot é tirado dentro do ator, então nenhum evento fica de fora
+    int adicionarEspectador(IHalmaSpectator espectador) {
+        return mailbox.pedir(() -> encerrada ? -1 : plateia.adicionar(espectador, snapshotCodificado()));
+    }
+
+    void removerEspectador(int espectadorId) {
+        plateia.remover(espectadorId);
+    }
+
+    int getEspectadores() {
+        return plateia.getTamanho();
+    }
+
+    // Nomes dos jogadores seguidos do estado completo, como frames INICIO + ESTADO
+    private byte[] snapshotCodificado() {
+        byte[] inicio = new NioProtocol.Encoder(NioProtocol.INICIO).putString(p1Name).putString(p2Name).finishBytes();
+        byte[] estado = new NioProtocol.Encoder(NioProtocol.ESTADO).putEvento(snapshotAtual()).finishBytes();
+        byte[] frames = java.util.Arrays.copyOf(inicio, inicio.length + estado.length);
+        System.arraycopy(estado, 0, frames, inicio.length, estado.length);
+        return frames;
+    }
+
+    // Leitura sem lock da posição publicada
+    BoardSnapshot getTabuleiro() {
+        return tabuleiro.get();
+    }
+
+    boolean isCompleta() {
+        return mailbox.pedir(() -> player1 != null && player2 != null);
+    }
+
+    int getJogadoresConectados() {
+        return conectados;
+    }
+
+    // Falha de entrega ou de heartbeat segue o mesmo caminho de IHalmaServer.desconectar, mas só tira
+    // do assento quem ainda está nele com esta outbox (a outbox e o heartbeat podem falhar juntos, e o
+    // assento pode já ter outro ocupante)
+    private ClientOutbox criarOutbox(IHalmaClient client, int playerId) {
+        ClientOutbox[] self = new ClientOutbox[1];
+        Runnable desconectar = () -> desconectar(playerId, self[0]);
+        self[0] = dispatcher.criarOutbox(client, desconectar);
+        HeartbeatService.Session hb = heartbeat.registrar(id + ":" + playerId, client, desconectar);
+        if (playerId == 1) hb1 = hb;
+        else hb2 = hb;
+        return self[0];
+    }
+
+    // Comando de quem ocupa o assento 'playerId' com esta sessão
+    private boolean daSessao(int playerId, long sessao) {
+        return (playerId == 1 || playerId == 2) && sessao != 0L && sessoes[playerId] == sessao;
+    }
+
+    // Comando de jogador vindo de IHalmaServer: a latência do método ('inicio' é o recebimento da chamada)
+    // é registrada quando o ator termina o comando, incluindo a espera na fila e o processamento
+    private void comando(String metodo, long inicio, Runnable trabalho) {
+        mailbox.executar(() -> {
+            try {
+                trabalho.run();
+            } finally {
+                dispatcher.getMetrics().registrarChamada(metodo, inicio);
+            }
+        });
+    }
+
+    void enviarMovimento(int playerId, long sessao, List<Point> sequencia, long inicio) {
+        comando("enviarMovimento", inicio, () -> {
+            if (daSessao(playerId, sessao)) aplicarMovimento(playerId, sequencia);
+        });
+    }
+
+    private void aplicarMovimento(int playerId, List<Point> sequencia) {
+        if (!gameActive || playerId != currentTurn) {
+            rejeitarMovimento(playerId, null);
+            return;
+        }
+
+        // Converte List<Point> para array int[] (lógica existente)
+        int[] coords = new int[sequencia.size() * 2];
+        for (int i = 0; i < sequencia.size(); i++) {
+            coords[i * 2] = sequencia.get(i).x;
+            coords[i * 2 + 1] = sequencia.get(i).y;
+        }
+
+        BoardSnapshot novo = tabuleiro.get().mover(coords, playerId);
+        if (novo != null) {
+            tabuleiro.set(novo);
+            journal.movimento(id, playerId, coords);
+            // [NOVO] Incrementa o placar
+            if (playerId == 1) p1Moves++;
+            else p2Moves++;
+
+            // Lógica de troca de turno existente
+            currentTurn = (currentTurn == 1) ? 2 : 1;
+            dispatcher.getMetrics().registrarMovimento();
+
+            // Verifica vitória (lógica existente)
+            int vencedor = 0;
+            if (novo.verificarVencedor(playerId)) {
+                gameActive = false;
+                vencedor = playerId;
+                journal.fim(id, playerId);
+                anunciarVitoria(playerId);
+            }
+
+            // Um único callback por jogador: delta do tabuleiro, turno, placar e fim de jogo
+            broadcastEstado(GameStateEvent.movimento(novo.getVersao(), coords, turnoAtual(),
+                    p1Moves, p2Moves, vencedor));
+        } else {
+            rejeitarMovimento(playerId, "[Erro] Movimento invalido pelo servidor.");
+        }
+    }
+
+    // O cliente já exibe o lance que previu: o snapshot autoritativo desfaz a previsão
+    private void rejeitarMovimento(int playerId, String msg) {
+        ClientOutbox p = (playerId == 1) ? player1 : (playerId == 2) ? player2 : null;
+        if (p != null && msg != null) p.enviar("receberMensagem", c -> c.receberMensagem(msg));
+        enviarSnapshot(playerId);
+    }
+
+    void enviarChat(int playerId, long sessao, String msg, long inicio) {
+        comando("enviarChat", inicio, () -> {
+            if (daSessao(playerId, sessao)) aplicarChat(playerId, msg);
+        });
+    }
+
+    private void aplicarChat(int playerId, String msg) {
+        String nome = (playerId == 1) ? p1Name : p2Name;
+        if ("ABANDON_GAME".equals(msg)) {
+            if (!gameActive) return; // Não faz nada se o jogo não estiver ativo
+
+            int winnerId = (playerId == 1) ? 2 : 1;
+            String winnerName = (winnerId == 1) ? p1Name : p2Name;
+
+            broadcastMsg(nome + " desistiu. " + winnerName + " venceu a partida!");
+            gameActive = false;
+            journal.fim(id, winnerId);
+            anunciarVitoria(winnerId);
+            broadcastEstado(GameStateEvent.estado(tabuleiro.get().getVersao(), 0, p1Moves, p2Moves, winnerId));
+        } else {
+            String formatted = "[CHAT] " + nome + ": " + msg;
+            broadcastMsg(formatted);
+        }
+    }
+
+    void solicitarReinicio(int playerId, long sessao, long inicio) {
+        comando("solicitarReinicio", inicio, () -> {
+            if (daSessao(playerId, sessao)) reiniciar(playerId);
+        });
+    }
+
+    private void reiniciar(int playerId) {
+        // Apenas o jogador 1 pode solicitar o reinício para evitar chamadas duplicadas.
+        // E só reinicia se o jogo estiver inativo (após uma vitória)
+        // e ambos os jogadores ainda estiverem conectados.
+        if (playerId == 1 && !gameActive && player1 != null && player2 != null) {
+            System.out.println("[Partida " + id + "] Jogador 1 solicitou reinicio. Reiniciando o jogo...");
+            iniciarJogo();
+        }
+    }
+
+    void solicitarTabuleiro(int playerId, long sessao, long inicio) {
+        comando("solicitarTabuleiro", inicio, () -> {
+            if (daSessao(playerId, sessao)) enviarSnapshot(playerId);
+        });
+    }
+
+    private void enviarSnapshot(int playerId) {
+        ClientOutbox p = (playerId == 1) ? player1 : (playerId == 2) ? player2 : null;
+        GameStateEvent snapshot = snapshotAtual();
+        if (p != null) p.enviar("atualizarEstado", c -> c.atualizarEstado(snapshot));
+    }
+
+    // Saída pedida pelo próprio jogador (IHalmaServer.desconectar)
+    void desconectar(int playerId, long sessao, long inicio) {
+        comando("desconectar", inicio, () -> {
+            if (daSessao(playerId, sessao)) sairDoAssento(playerId);
+        });
+    }
+
+    // Remove o jogador do assento, se 'outbox' ainda for a dele. A conferência e a saída são o mesmo
+    // comando do ator, então duas falhas do mesmo cliente removem uma vez só.
+    private void desconectar(int playerId, ClientOutbox outbox) {
+        mailbox.executar(() -> {
+            if (((playerId == 1) ? player1 : player2) == outbox) sairDoAssento(playerId);
+        });
+    }
+
+    private void sairDoAssento(int playerId) {
+        if (sair(playerId)) server.partidaEncerrada(this);
+        else server.partidaComVaga(this);
+    }
+
+    private boolean sair(int playerId) {
+        String nome = (playerId == 1) ? p1Name : p2Name;
+        broadcastMsg("O jogador " + nome + " saiu do jogo.");
+
+        ClientOutbox saindo = (playerId == 1) ? player1 : player2;
+        if (saindo != null) saindo.fechar();
+        HeartbeatService.Session hb = (playerId == 1) ? hb1 : hb2;
+        if (hb != null) hb.cancelar();
+        if (playerId == 1) player1 = null;
+        else player2 = null;
+        sessoes[playerId] = 0L;
+        journal.saida(id, playerId);
+
+        gameActive = false;
+        retomada = false;
+        liberarReservas();
+        if (contraComputador && playerId == 1) {
+            // Sem o humano a partida contra o computador acaba: libera também o assento do motor
+            player2.fechar();
+            hb2.cancelar();
+            player2 = null;
+            sessoes[2] = 0L;
+        }
+        conectados = (player1 != null ? 1 : 0) + (player2 != null ? 1 : 0);
+        if (player1 == null && player2 == null) {
+            encerrada = true;
+            journal.encerrada(id);
+            plateia.fechar();
+            return true;
+        }
+        resetGame();
+        return false;
+    }
+
+    // --- Métodos Auxiliares ---
+
+    private void iniciarJogo() {
+        if (encerrada) return;
+        gameActive = true;
+        if (retomada) {
+            retomada = false; // Tabuleiro, turno e placar já vieram do journal
+        } else {
+            currentTurn = 1;
+            p1Moves = 0;
+            p2Moves = 0;
+            novoTabuleiro();
+            journal.inicio(id, tabuleiro.get().getVersao());
+        }
+
+        // Notifica os clientes sobre o início e quem são os jogadores
+        final String n1 = p1Name, n2 = p2Name;
+        broadcast("notificarInicioJogo", c -> c.notificarInicioJogo(n1, n2));
+        if (!plateia.isVazio()) {
+            plateia.publicar(new NioProtocol.Encoder(NioProtocol.INICIO).putString(n1).putString(n2).finishBytes());
+        }
+
+        broadcastMsg(p1Moves + p2Moves > 0 ? "JOGO RETOMADO!" : "JOGO INICIADO!");
+        broadcastEstado(snapshotAtual()); // Tabuleiro novo, turno e placar zerado num único callback
+    }
+
+    private void resetGame() {
+        novoTabuleiro();
+        currentTurn = 1;
+        p1Moves = 0;
+        p2Moves = 0;
+        broadcastEstado(snapshotAtual());
+        // Se ainda houver alguém conectado, avisa para esperar
+        broadcastMsg("Esperando oponente...");
+    }
+
+    // Posição inicial publicada com a versão seguinte (deltas antigos deixam de se aplicar)
+    private void novoTabuleiro() {
+        tabuleiro.set(BoardSnapshot.INICIAL.comVersao(tabuleiro.get().getVersao() + 1));
+    }
+
+    private int turnoAtual() {
+        return gameActive ? currentTurn : 0;
+    }
+
+    private GameStateEvent snapshotAtual() {
+        return GameStateEvent.snapshot(tabuleiro.get(), turnoAtual(), p1Moves, p2Moves, 0);
+    }
+
+    private void broadcastEstado(GameStateEvent evento) {
+        // O mesmo evento imutável vai para os dois jogadores
+        broadcast("atualizarEstado", c -> c.atualizarEstado(evento));
+        if (!plateia.isVazio()) {
+            plateia.publicar(new NioProtocol.Encoder(NioProtocol.ESTADO).putEvento(evento).finishBytes());
+        }
+    }
+
+    private void anunciarVitoria(int winnerId) {
+        System.out.println("[Partida " + id + "] Jogador " + winnerId + " venceu o jogo!");
+        broadcastMsg("O Jogador " + winnerId + " venceu!");
+    }
+
+    private void broadcastMsg(String msg) {
+        broadcast("receberMensagem", c -> c.receberMensagem(msg));
+        if (!plateia.isVazio()) {
+            plateia.publicar(new NioProtocol.Encoder(NioProtocol.MENSAGEM).putString(msg).finishBytes());
+        }
+    }
+
+    // Enfileira o callback para os dois jogadores; chamado pelo ator, o que preserva a ordem
+    private void broadcast(String metodo, ClientOutbox.Callback callback) {
+        if (player1 != null) player1.enviar(metodo, callback);
+        if (player2 != null) player2.enviar(metodo, callback);
+    }
+}
@@ -11,11 +11,10 @@ import java.awt.RenderingHints;
 import java.awt.BasicStroke;
 
 public class HalmaGameUI extends JFrame {
-    private JButton[][] buttons;
-    private int size = 8;
-    private int baseSize = 4; // tamanho da base triangular (escada) para 8x8
+    private HalmaBoardPanel boardPanel; // Tabuleiro desenhado (sprites em cache, repinta só as casas alteradas)
     private int selectedX = -1, selectedY = -1;
     private List<Point> moveSeq = new ArrayList<>();
+    private final MoveBuffer selectionMoves = new MoveBuffer(); // Destinos (com caminho) da peça selecionada
     private JPanel chatPanel;
     private JTextArea chatAreaField;
     private JTextField chatInputField;
@@ -30,13 +29,8 @@ public class HalmaGameUI extends JFrame {
     private JLabel p2MovesLabel;
     private Point lastMove = null;
 
-    private Color lightSquare = new Color(170, 120, 70);
-    private Color darkSquare = new Color(110, 70, 40);
     private Color player1Color = Color.BLACK;
     private Color player2Color = Color.WHITE;
-    private Color lastMoveColor = new Color(255, 200, 0);
-    private Color topBaseHighlight = new Color(85, 80, 82);
-    private Color bottomBaseHighlight = new Color(204, 204, 204);
 
     private JPanel p1StatusPanel;
     private JPanel p2StatusPanel;
@@ -115,25 +109,11 @@ public class HalmaGameUI extends JFrame {
         
         add(topBar, BorderLayout.NORTH);
 
-        JPanel boardPanel = new JPanel(new GridLayout(size, size));
-        buttons = new JButton[size][size];
-
-        for (int y = 0; y < size; y++) {
-            for (int x = 0; x < size; x++) {
-                JButton b = new JButton();
-                b.setMargin(new Insets(0, 0, 0, 0));
-                b.setFocusPainted(false);
-                b.setBorder(BorderFactory.createLineBorder(Color.black, 1));
-                Color squareColor = getSquareColor(x, y);
-                b.setBackground(squareColor);
-                final int fx = x, fy = y;
-                b.addActionListener(e -> handleClick(fx, fy));
-                buttons[y][x] = b;
-                boardPanel.add(b);
-            }
-        }
-        boardPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        add(boardPanel, BorderLayout.CENTER);
+        boardPanel = new HalmaBoardPanel(player1Color, player2Color, this::handleClick);
+        JPanel boardContainer = new JPanel(new BorderLayout());
+        boardContainer.add(boardPanel, BorderLayout.CENTER);
+        boardContainer.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        add(boardContainer, BorderLayout.CENTER);
 
         chatPanel = buildChatPanel(client);
         add(chatPanel, BorderLayout.EAST);
@@ -164,15 +144,6 @@ public class HalmaGameUI extends JFrame {
     }
 
     private Icon createPieceIconForStatus(Color color) { return createPieceIconForStatusImpl(color); }
-    private Icon createPieceIcon(Color color) { return createPieceIconImpl(color); }
-    private Color getSquareColor(int x, int y) {
-        if (isTopLeftBase(x, y)) return topBaseHighlight;
-        else if (isBottomRightBase(x, y)) return bottomBaseHighlight;
-        return ((x + y) % 2 == 0) ? lightSquare : darkSquare;
-    }
-
-    private boolean isTopLeftBase(int x, int y) { return (y >= 0 && y < baseSize) && (x >= 0 && x <= baseSize - 1 - y); }
-    private boolean isBottomRightBase(int x, int y) { int rx = (size - 1) - x; int ry = (size - 1) - y; return (ry >= 0 && ry < baseSize) && (rx >= 0 && rx <= baseSize - 1 - ry); }
 
     public void setPlayerNameLabel(int id, String name) {
         if (id < 1 || id > 2) return;
@@ -209,106 +180,42 @@ public class HalmaGameUI extends JFrame {
     public void showWin(int id) { JOptionPane.showMessageDialog(this, "Jogador " + id + " venceu!"); }
 
 
-    private HalmaBoard currentBoard;
+    private BoardSnapshot currentBoard;
 
-    public void setBoard(HalmaBoard board) {
+    public void setBoard(BoardSnapshot board) {
         this.currentBoard = board;
         // Força uma atualização visual imediata sem movimento anterior destacado
         updateBoardFromModel(board, null);
     }
 
     /**
-     * Atualiza os icones de todos os botões com base no estado do HalmaBoard recebido.
+     * Atualiza o tabuleiro desenhado com o snapshot recebido; só as casas que mudaram são repintadas.
      * @param board O tabuleiro atualizado.
      * @param lastMove O ponto de destino do último movimento (para realce), pode ser null.
      */
-    public void updateBoardFromModel(HalmaBoard model, Point lastMove) {
-        // Simplified: paint buttons based on model
-        for (int y = 0; y < model.getSize(); y++) {
-            for (int x = 0; x < model.getSize(); x++) {
-                int v = model.getCell(x, y);
-                JButton b = buttons[y][x];
-                if (v == 1) { b.setIcon(createPieceIcon(player1Color)); }
-                else if (v == 2) { b.setIcon(createPieceIcon(player2Color)); }
-                else { b.setIcon(null); }
-
-                // reset any highlight/background to default square color
-                Color squareColor = getSquareColor(x, y);
-                b.setBackground(squareColor);
-                b.setBorder(BorderFactory.createLineBorder(Color.black, 1));
-            }
-        }
+    public void updateBoardFromModel(BoardSnapshot model, Point lastMove) {
+        this.currentBoard = model;
         this.lastMove = lastMove;
-
-        // Highlight last move (if provided)
-        if (this.lastMove != null) {
-            int lx = this.lastMove.x;
-            int ly = this.lastMove.y;
-            if (ly >= 0 && ly < buttons.length && lx >= 0 && lx < buttons[0].length) {
-                JButton lastBtn = buttons[ly][lx];
-                lastBtn.setBackground(lastMoveColor);
-            }
-        }
-
-        // no overlay highlighting active; done
-    }
-
-    // Auxiliares para identificar bases (caso não tenha na sua UI ainda)
-    private boolean isPlayer1Base(int x, int y) {
-        return (y < baseSize) && (x < baseSize - y);
+        boardPanel.atualizar(model, lastMove, 0L); // Limpa o realce de destinos
     }
 
-
     private void showValidMovesForSelection() {
-        // clear all highlights first
-        for (int y = 0; y < size; y++) for (int x = 0; x < size; x++) {
-            Color squareColor = getSquareColor(x, y);
-            buttons[y][x].setBackground(squareColor);
-            buttons[y][x].setBorder(BorderFactory.createLineBorder(Color.black, 1));
-        }
-
-        // reapply pieces/icons from current client board snapshot if available
-        HalmaBoard model = client.getBoardCopy();
-        if (model != null) {
-            for (int y = 0; y < model.getSize(); y++) for (int x = 0; x < model.getSize(); x++) {
-                int v = model.getCell(x, y);
-                if (v == 1) buttons[y][x].setIcon(createPieceIcon(player1Color));
-                else if (v == 2) buttons[y][x].setIcon(createPieceIcon(player2Color));
-                else buttons[y][x].setIcon(null);
-            }
-        }
-
-        // highlight last move if present
-        if (this.lastMove != null) {
-            int lx = this.lastMove.x;
-            int ly = this.lastMove.y;
-            if (ly >= 0 && ly < buttons.length && lx >= 0 && lx < buttons[0].length) {
-                JButton lastBtn = buttons[ly][lx];
-                lastBtn.setBackground(lastMoveColor);
-            }
-        }
-
-        // if no selection, nothing else to do
-        if (selectedX == -1) return;
-
-        // compute valid moves using the model
+        BoardSnapshot model = client.getBoard();
         if (model == null) return; // can't compute
-        java.util.List<Point> moves = model.getValidMoves(client.getMyId(), selectedX, selectedY);
-        if (moves == null) return;
-        for (Point p : moves) {
-            if (p.y >= 0 && p.y < buttons.length && p.x >= 0 && p.x < buttons[0].length) {
-                JButton target = buttons[p.y][p.x];
-                target.setBackground(new Color(120, 230, 120)); // green
-                target.setBorder(BorderFactory.createLineBorder(new Color(30, 120, 30), 2));
-            }
+        long destinos = 0L;
+        if (selectedX != -1) {
+            // compute valid moves using the model (passos e pulos encadeados, com o caminho de cada destino)
+            int n = model.gerarMovimentos(selectedX, selectedY, selectionMoves);
+            for (int i = 0; i < n; i++) destinos |= 1L << selectionMoves.getTo(i);
         }
+        boardPanel.atualizar(model, this.lastMove, destinos);
     }
 
     private void handleClick(int x, int y) {
         if (!myTurn) { addChatMessage("[Sistema] Ainda nao e sua vez."); return; }
         if (selectedX == -1) {
             // only start selection if the square contains a piece, and if we know our id, only our own pieces
-            HalmaBoard model = client.getBoardCopy();
+            BoardSnapshot model = client.getBoard();
             if (model == null) { addChatMessage("[Sistema] Tabuleiro indisponivel."); return; }
             int cell = model.getCell(x, y);
             if (cell == 0) {return;}
@@ -318,16 +225,26 @@ public class HalmaGameUI extends JFrame {
             selectedX = x; selectedY = y; moveSeq.clear(); moveSeq.add(new Point(x, y));
             showValidMovesForSelection();
         } else {
-            // complete selection: add target and send
-            moveSeq.add(new Point(x, y)); java.util.List<Point> seq = new ArrayList<>(moveSeq); client.sendMove(seq);
+            // complete selection: envia o caminho completo até o destino (pulos encadeados incluídos)
+            int idx = selectionMoves.indexOfTarget(x, y);
+            java.util.List<Point> seq;
+            if (idx >= 0) seq = selectionMoves.getPath(idx);
+            else { moveSeq.add(new Point(x, y)); seq = new ArrayList<>(moveSeq); }
+            BoardSnapshot previsto = client.sendMove(seq);
             selectedX = -1; selectedY = -1; moveSeq.clear();
-            // refresh board to clear highlights
-            HalmaBoard model = client.getBoardCopy(); if (model != null) updateBoardFromModel(model, this.lastMove);
+            if (previsto != null) {
+                // Desenha o lance previsto na hora; o servidor confirma (ou desfaz) depois
+                updateBoardFromModel(previsto, seq.get(seq.size() - 1));
+                disableTurn();
+            } else {
+                // refresh board to clear highlights
+                BoardSnapshot model = client.getBoard(); if (model != null) updateBoardFromModel(model, this.lastMove);
+            }
         }
     }
 
 
-    private void clearSelection() { selectedX = selectedY = -1; moveSeq.clear(); }
+    private void clearSelection() { selectedX = selectedY = -1; moveSeq.clear(); selectionMoves.clear(); }
 
     private void highlightBases() { /* visual only */ }
 
@@ -455,25 +372,6 @@ public class HalmaGameUI extends JFrame {
         return new ImageIcon(img);
     }
 
-    private static Icon createPieceIconImpl(Color color) {
-        BufferedImage img = new BufferedImage(48, 48, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = img.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        final int x = 6, y = 6, size = 36;
-        Color shadowColor = color.equals(Color.BLACK) ? Color.LIGHT_GRAY : Color.BLACK;
-        Color lightColor = color.equals(Color.BLACK) ? Color.WHITE : Color.BLACK;
-        g.setColor(color);
-        g.fillOval(x, y, size, size);
-        g.setStroke(new BasicStroke(4f));
-        g.setColor(shadowColor);
-        g.drawOval(x + 1, y + 1, size, size);
-        g.setStroke(new BasicStroke(3f));
-        g.setColor(lightColor);
-        g.drawOval(x, y, size, size);
-        g.dispose();
-        return new ImageIcon(img);
-    }
-
     // Small helper to avoid multiple anonymous AbstractAction classes
     private static class RunnableAction extends AbstractAction {
         private final Runnable r;
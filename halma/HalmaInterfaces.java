@@ -7,26 +7,34 @@ import java.util.List;
 
 // Interface que o Servidor expõe para o Cliente
 interface IHalmaServer extends Remote {
-    int registrarCliente(IHalmaClient cliente, String nome) throws RemoteException;
-    void enviarMovimento(int playerId, List<Point> sequencia) throws RemoteException;
-    void enviarChat(int playerId, String mensagem) throws RemoteException;
-    void desconectar(int playerId) throws RemoteException;
-    void solicitarReinicio(int playerId) throws RemoteException; // NOVO MÉTODO
+    Registration registrarCliente(IHalmaClient cliente, String nome) throws RemoteException; // Matchmaking
+    Registration entrarNaPartida(IHalmaClient cliente, String nome, int gameId) throws RemoteException;
+    Registration registrarContraComputador(IHalmaClient cliente, String nome) throws RemoteException; // Partida nova contra o motor
+    // 'sessao' é a de Registration.getSessao(): chamadas com sessão de outro assento são ignoradas
+    void enviarMovimento(int gameId, int playerId, long sessao, List<Point> sequencia) throws RemoteException;
+    void enviarChat(int gameId, int playerId, long sessao, String mensagem) throws RemoteException;
+    void desconectar(int gameId, int playerId, long sessao) throws RemoteException;
+    void solicitarReinicio(int gameId, int playerId, long sessao) throws RemoteException; // NOVO MÉTODO
+    void solicitarTabuleiro(int gameId, int playerId, long sessao) throws RemoteException; // Cliente detectou lacuna de versão: pede snapshot completo
+    int assistirPartida(IHalmaSpectator espectador, int gameId) throws RemoteException; // Id do espectador, ou -1 se a partida não existe
+    void deixarDeAssistir(int gameId, int espectadorId) throws RemoteException;
 }
 
 // Interface que o Cliente expõe para o Servidor (Callbacks)
 interface IHalmaClient extends Remote {
     void receberMensagem(String msg) throws RemoteException;
 
-    void atualizarTabuleiro(HalmaBoard board, Point lastMove) throws RemoteException;
-
-    void definirTurno(boolean meuTurno) throws RemoteException;
-
-    void notificarFimDeJogo(int idVencedor) throws RemoteException;
+    // Único callback de estado por movimento: delta (ou snapshot) do tabuleiro, turno, placar e fim de jogo
+    void atualizarEstado(GameStateEvent evento) throws RemoteException;
 
     void notificarInicioJogo(String p1Name, String p2Name) throws RemoteException;
 
     void ping() throws RemoteException; // Para verificar se o cliente ainda está vivo
+}
 
-    void atualizarPlacar(int p1Moves, int p2Moves) throws RemoteException;
+// Callback de quem assiste a uma partida: frames do NioProtocol (MENSAGEM, ESTADO, INICIO) concatenados.
+// Cada evento é codificado uma única vez no servidor e o mesmo array vai para todos os espectadores;
+// o primeiro lote traz o snapshot da partida. HalmaSpectator decodifica para um IHalmaClient.
+interface IHalmaSpectator extends Remote {
+    void receberEventos(byte[] frames) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package halma;
+
+import java.net.ServerSocket;
+import java.rmi.Naming;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Gerador de carga sem interface gráfica: N bots (IHalmaClient sem HalmaGameUI) registram-se em pares,
+// jogam lances legais durante um tempo fixo e no fim é impressa a vazão (lances/s) e os percentis
+// p50/p95/p99 de enviarMovimento e da entrega do callback de estado (do envio do lance até o
+// atualizarEstado com a versão que ele produziu chegar ao próprio autor).
+// No NIO enviarMovimento só escreve no socket, então a latência relevante é a do callback.
+//
+// Uso: java -cp halma.jar halma.HalmaLoadTest [-clients N] [-duration segundos] [-host H -port P]
+//                                              [-nio] [-greedy] [-computador] [-espectadores N]
+// Com -computador cada bot joga sozinho contra o motor do servidor (registrarContraComputador).
+// Com -espectadores, N observadores assistem a cada partida (assistirPartida) e contam os eventos recebidos.
+// Sem -host, um servidor é iniciado no próprio processo em uma porta livre de localhost.
+public class HalmaLoadTest {
+    private final LatencyRecorder sendLatency = new LatencyRecorder();
+    private final LatencyRecorder callbackLatency = new LatencyRecorder();
+    private final AtomicLong sentMoves = new AtomicLong();
+    private final AtomicLong spectatorEvents = new AtomicLong();
+    private final AtomicLong spectatorSnapshots = new AtomicLong();
+    private final ExecutorService moveExecutor;
+    private final boolean greedy;
+    private final boolean contraComputador;
+    private volatile boolean running = true;
+    private volatile boolean medindo = false; // Amostras só são registradas após o aquecimento
+
+    private HalmaLoadTest(int threads, boolean greedy, boolean contraComputador) {
+        this.greedy = greedy;
+        this.contraComputador = contraComputador;
+        this.moveExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "halma-bot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 20;
+        int duration = 30;
+        String host = null;
+        int port = 0;
+        boolean nio = false;
+        boolean greedy = false;
+        boolean computador = false;
+        int espectadores = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-clients": clients = Integer.parseInt(args[++i]); break;
+                case "-duration": duration = Integer.parseInt(args[++i]); break;
+                case "-host": host = args[++i]; break;
+                case "-port": port = Integer.parseInt(args[++i]); break;
+                case "-nio": nio = true; break;
+                case "-greedy": greedy = true; break;
+                case "-computador": computador = true; break;
+                case "-espectadores": espectadores = Integer.parseInt(args[++i]); break;
+                default: System.err.println("Argumento desconhecido: " + args[i]);
+            }
+        }
+        if (clients % 2 != 0 && !computador) clients++; // Bots jogam em pares
+
+        if (host == null) {
+            host = "127.0.0.1";
+            try (ServerSocket s = new ServerSocket(0)) {
+                port = s.getLocalPort();
+            }
+            HalmaServer.main(nio ? new String[] { host, String.valueOf(port), "-nio" }
+                                 : new String[] { host, String.valueOf(port) });
+        }
+
+        HalmaLoadTest test = new HalmaLoadTest(Math.max(4, Runtime.getRuntime().availableProcessors() * 2), greedy, computador);
+        test.run(host, port, nio, clients, duration, espectadores);
+        System.exit(0);
+    }
+
+    private void run(String host, int port, boolean nio, int clients, int duration, int espectadores) throws Exception {
+        IHalmaServer rmiServer = nio ? null : (IHalmaServer) Naming.lookup("rmi://" + host + ":" + port + "/HalmaService");
+
+        HalmaSocketFactory sockets = HalmaSocketFactory.fromSystemProperties();
+        List<Bot> bots = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Bot bot = new Bot("bot" + i);
+            IHalmaServer server;
+            if (nio) {
+                server = new NioServerProxy(host, port, bot);
+            } else {
+                UnicastRemoteObject.exportObject(bot, 0, sockets, sockets);
+                server = rmiServer;
+            }
+            bot.conectar(server);
+            bots.add(bot);
+        }
+        System.out.println("Bots conectados: " + bots.size() + " (" + (nio ? "NIO" : "RMI") + ")");
+
+        Set<Integer> partidas = new LinkedHashSet<>();
+        for (Bot b : bots) partidas.add(b.gameId);
+        int observadores = 0;
+        for (int gameId : partidas) {
+            for (int i = 0; i < espectadores; i++) {
+                Watcher w = new Watcher();
+                int id;
+                if (nio) {
+                    id = new NioServerProxy(host, port, w).assistirPartida(null, gameId);
+                } else {
+                    HalmaSpectator esp = new HalmaSpectator(w);
+                    UnicastRemoteObject.exportObject(esp, 0, sockets, sockets);
+                    id = rmiServer.assistirPartida(esp, gameId);
+                }
+                if (id > 0) observadores++;
+            }
+        }
+        if (espectadores > 0) System.out.println("Espectadores: " + observadores + " em " + partidas.size() + " partidas");
+
+        Thread.sleep(500); // Espera o início das partidas
+        medindo = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+        running = false;
+        medindo = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Bot b : bots) b.desconectar();
+
+        System.out.println("------------------------------------------------");
+        System.out.printf("Duracao:            %.1f s%n", seconds);
+        System.out.printf("Lances enviados:    %d%n", sentMoves.get());
+        System.out.printf("Vazao:              %.1f lances/s%n", sentMoves.get() / seconds);
+        System.out.println("enviarMovimento:    " + sendLatency.resumo());
+        System.out.println("callback de estado: " + callbackLatency.resumo());
+        if (espectadores > 0) {
+            System.out.printf("Espectadores:       %d eventos (%.1f/s), %d snapshots%n", spectatorEvents.get(),
+                    spectatorEvents.get() / seconds, spectatorSnapshots.get());
+        }
+        System.out.println("------------------------------------------------");
+    }
+
+    // Bot sem UI: mantém o tabuleiro local a partir dos eventos e joga quando é a sua vez
+    private final class Bot implements IHalmaClient {
+        private final String nome;
+        private final MoveBuffer buffer = new MoveBuffer();
+        private IHalmaServer server;
+        private int gameId, playerId;
+        private long sessao;
+
+        private BoardSnapshot board = BoardSnapshot.INICIAL;
+        private long enviadoEm = 0;       // nanoTime do último envio (0 = nada pendente)
+        private long versaoEsperada = -1; // Versão que o nosso lance deve produzir
+
+        Bot(String nome) {
+            this.nome = nome;
+        }
+
+        void conectar(IHalmaServer server) throws RemoteException {
+            this.server = server;
+            Registration reg = contraComputador ? server.registrarContraComputador(this, nome)
+                                                : server.registrarCliente(this, nome);
+            if (!reg.isAceito()) throw new RemoteException("Registro recusado para " + nome);
+            gameId = reg.getGameId();
+            playerId = reg.getPlayerId();
+            sessao = reg.getSessao();
+        }
+
+        void desconectar() {
+            try {
+                server.desconectar(gameId, playerId, sessao);
+            } catch (RemoteException e) {
+                // Ignora
+            }
+        }
+
+        @Override
+        public synchronized void atualizarEstado(GameStateEvent evento) {
+            long agora = System.nanoTime();
+            if (evento.isSnapshot()) {
+                board = evento.getTabuleiro();
+            } else if (evento.getCaminho() != null) {
+                int[] caminho = evento.getCaminho();
+                BoardSnapshot next = (evento.getVersao() == board.getVersao() + 1)
+                        ? board.mover(caminho, board.getCell(caminho[0], caminho[1])) : null;
+                if (next == null) {
+                    pedirSnapshot();
+                    return;
+                }
+                board = next;
+            } else {
+                board = board.comVersao(evento.getVersao());
+            }
+            long versao = board.getVersao();
+
+            if (enviadoEm != 0 && versao >= versaoEsperada) {
+                if (medindo) callbackLatency.record(agora - enviadoEm);
+                enviadoEm = 0;
+            }
+            if (evento.getVencedor() != 0 && playerId == 1) {
+                moveExecutor.execute(() -> {
+                    try {
+                        server.solicitarReinicio(gameId, playerId, sessao);
+                    } catch (RemoteException e) {
+                        // Ignora
+                    }
+                });
+            }
+            if (running && evento.getTurno() == playerId && enviadoEm == 0) jogar();
+        }
+
+        private void jogar() {
+            int n = board.gerarTodosMovimentos(playerId, buffer);
+            if (n == 0) return;
+            int escolhido = greedy ? melhorAvanco(n) : ThreadLocalRandom.current().nextInt(n);
+            List<java.awt.Point> caminho = buffer.getPath(escolhido);
+            versaoEsperada = board.getVersao() + 1;
+            enviadoEm = System.nanoTime();
+            moveExecutor.execute(() -> {
+                long inicio = System.nanoTime();
+                try {
+                    server.enviarMovimento(gameId, playerId, sessao, caminho);
+                    if (medindo) {
+                        sendLatency.record(System.nanoTime() - inicio);
+                        sentMoves.incrementAndGet();
+                    }
+                } catch (RemoteException e) {
+                    System.err.println(nome + ": falha ao enviar movimento: " + e.getMessage());
+                }
+            });
+        }
+
+        // Lance que mais aproxima a peça do canto alvo (empates decididos pela ordem do gerador)
+        private int melhorAvanco(int n) {
+            int best = 0, bestGain = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                int from = buffer.getFrom(i), to = buffer.getTo(i);
+                int gain = ((to & 7) + (to >>> 3)) - ((from & 7) + (from >>> 3));
+                if (playerId == 2) gain = -gain;
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        private void pedirSnapshot() {
+            moveExecutor.execute(() -> {
+                try {
+                    server.solicitarTabuleiro(gameId, playerId, sessao);
+                } catch (RemoteException e) {
+                    // Ignora
+                }
+            });
+        }
+
+        @Override
+        public void receberMensagem(String msg) {
+        }
+
+        @Override
+        public void notificarInicioJogo(String p1Name, String p2Name) {
+        }
+
+        @Override
+        public void ping() {
+        }
+    }
+
+    // Observador de uma partida: só conta os eventos de estado entregues
+    private final class Watcher implements IHalmaClient {
+        @Override
+        public void atualizarEstado(GameStateEvent evento) {
+            if (!medindo) return;
+            spectatorEvents.incrementAndGet();
+            if (evento.isSnapshot()) spectatorSnapshots.incrementAndGet();
+        }
+
+        @Override
+        public void receberMensagem(String msg) {
+        }
+
+        @Override
+        public void notificarInicioJogo(String p1Name, String p2Name) {
+        }
+
+        @Override
+        public void ping() {
+        }
+    }
+
+    // Guarda todas as amostras (em nanossegundos) para calcular percentis exatos no fim
+    static final class LatencyRecorder {
+        private long[] samples = new long[1 << 14];
+        private int count = 0;
+
+        synchronized void record(long nanos) {
+            if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+            samples[count++] = nanos;
+        }
+
+        synchronized String resumo() {
+            if (count == 0) return "sem amostras";
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return String.format("n=%d p50=%.3f ms p95=%.3f ms p99=%.3f ms max=%.3f ms",
+                    count, percentil(sorted, 50), percentil(sorted, 95), percentil(sorted, 99),
+                    sorted[count - 1] / 1e6);
+        }
+
+        private static double percentil(long[] sorted, double p) {
+            int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1e6;
+        }
+    }
+}
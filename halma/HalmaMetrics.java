@@ -0,0 +1,256 @@
+package halma;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Telemetria do servidor: contadores sem lock no caminho quente (LongAdder / AtomicLongArray)
+// e histogramas de latência em faixas de potência de 2 (em microssegundos).
+class HalmaMetrics implements HalmaMetricsMXBean {
+    static final String OBJECT_NAME = "halma:type=HalmaServer";
+
+    private static final int FAIXAS = 25;      // 1us .. ~16s; a última faixa acumula o restante
+    private static final int JANELA_S = 10;    // Janela de movimentos por segundo
+
+    private final HalmaServer server;
+    private final Map<String, Histograma> chamadas = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> callbacksOk = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> callbacksFalha = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> callbacksTimeout = new ConcurrentHashMap<>();
+    private final LongAdder callbacksRepetidos = new LongAdder();
+    private final LongAdder circuitosAbertos = new LongAdder();
+
+    private final LongAdder movimentos = new LongAdder();
+    // Anel de movimentos por segundo: cada balde guarda (segundo << BITS_CONTAGEM) | contagem num único
+    // long, atualizado por CAS (a troca de segundo e a contagem são a mesma operação atômica)
+    private static final int BITS_CONTAGEM = 24;
+    private static final long MASCARA_CONTAGEM = (1L << BITS_CONTAGEM) - 1;
+    private final AtomicLongArray baldes = new AtomicLongArray(JANELA_S + 2);
+    private final long origemNanos = System.nanoTime();
+
+    HalmaMetrics(HalmaServer server) {
+        this.server = server;
+    }
+
+    void registrarMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nome = new ObjectName(OBJECT_NAME);
+            if (mbs.isRegistered(nome)) mbs.unregisterMBean(nome);
+            mbs.registerMBean(this, nome);
+        } catch (JMException e) {
+            System.err.println("Nao foi possivel registrar o MBean " + OBJECT_NAME + ": " + e.getMessage());
+        }
+    }
+
+    // --- Registro (caminho quente) ---
+
+    void registrarChamada(String metodo, long inicioNanos) {
+        chamadas.computeIfAbsent(metodo, k -> new Histograma()).registrar(System.nanoTime() - inicioNanos);
+    }
+
+    void callbackOk(String callback) {
+        contador(callbacksOk, callback).increment();
+    }
+
+    void callbackFalha(String callback) {
+        contador(callbacksFalha, callback).increment();
+    }
+
+    void callbackTimeout(String callback) {
+        contador(callbacksTimeout, callback).increment();
+    }
+
+    void callbackRepetido() {
+        callbacksRepetidos.increment();
+    }
+
+    void circuitoAberto() {
+        circuitosAbertos.increment();
+    }
+
+    void registrarMovimento() {
+        movimentos.increment();
+        long s = segundoAtual();
+        int i = (int) (s % baldes.length());
+        while (true) {
+            long v = baldes.get(i);
+            long novo = (v >>> BITS_CONTAGEM == s) ? v + 1 : (s << BITS_CONTAGEM) | 1;
+            if (baldes.compareAndSet(i, v, novo)) return;
+        }
+    }
+
+    private static LongAdder contador(Map<String, LongAdder> mapa, String chave) {
+        return mapa.computeIfAbsent(chave, k -> new LongAdder());
+    }
+
+    // Segundos desde a criação (sempre >= 0, cabe nos bits altos do balde)
+    private long segundoAtual() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - origemNanos);
+    }
+
+    // --- HalmaMetricsMXBean ---
+
+    @Override
+    public Map<String, Long> getChamadasPorMetodo() {
+        Map<String, Long> r = new TreeMap<>();
+        chamadas.forEach((k, h) -> r.put(k, h.total.sum()));
+        return r;
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaMediaMicros() {
+        Map<String, Double> r = new TreeMap<>();
+        chamadas.forEach((k, h) -> {
+            long n = h.total.sum();
+            r.put(k, n == 0 ? 0.0 : h.somaNanos.sum() / 1000.0 / n);
+        });
+        return r;
+    }
+
+    @Override
+    public Map<String, Long> getLatenciaP50Micros() {
+        Map<String, Long> r = new TreeMap<>();
+        chamadas.forEach((k, h) -> r.put(k, h.percentil(50)));
+        return r;
+    }
+
+    @Override
+    public Map<String, Long> getLatenciaP99Micros() {
+        Map<String, Long> r = new TreeMap<>();
+        chamadas.forEach((k, h) -> r.put(k, h.percentil(99)));
+        return r;
+    }
+
+    @Override
+    public Map<String, long[]> getHistogramaLatencia() {
+        Map<String, long[]> r = new TreeMap<>();
+        chamadas.forEach((k, h) -> r.put(k, h.faixas()));
+        return r;
+    }
+
+    @Override
+    public long[] getLimitesHistogramaMicros() {
+        long[] limites = new long[FAIXAS];
+        for (int i = 0; i < FAIXAS - 1; i++) limites[i] = 1L << (i + 1);
+        limites[FAIXAS - 1] = Long.MAX_VALUE;
+        return limites;
+    }
+
+    @Override
+    public Map<String, Long> getCallbacksSucesso() {
+        return somar(callbacksOk);
+    }
+
+    @Override
+    public Map<String, Long> getCallbacksFalha() {
+        return somar(callbacksFalha);
+    }
+
+    @Override
+    public Map<String, Long> getCallbacksTimeout() {
+        return somar(callbacksTimeout);
+    }
+
+    @Override
+    public long getCallbacksRepetidos() {
+        return callbacksRepetidos.sum();
+    }
+
+    @Override
+    public long getCircuitosAbertos() {
+        return circuitosAbertos.sum();
+    }
+
+    private static Map<String, Long> somar(Map<String, LongAdder> mapa) {
+        Map<String, Long> r = new TreeMap<>();
+        mapa.forEach((k, v) -> r.put(k, v.sum()));
+        return r;
+    }
+
+    @Override
+    public int getPartidasAtivas() {
+        return server.getPartidasAtivas();
+    }
+
+    @Override
+    public int getJogadoresConectados() {
+        return server.getJogadoresConectados();
+    }
+
+    @Override
+    public int getEspectadores() {
+        return server.getEspectadores();
+    }
+
+    @Override
+    public long getMovimentosTotais() {
+        return movimentos.sum();
+    }
+
+    @Override
+    public double getMovimentosPorSegundo() {
+        long s = segundoAtual();
+        long soma = 0;
+        for (long k = Math.max(0, s - JANELA_S); k < s; k++) { // Só segundos completos
+            long v = baldes.get((int) (k % baldes.length()));
+            if (v >>> BITS_CONTAGEM == k) soma += v & MASCARA_CONTAGEM;
+        }
+        return (double) soma / JANELA_S;
+    }
+
+    @Override
+    public void zerarContadores() {
+        chamadas.clear();
+        callbacksOk.clear();
+        callbacksFalha.clear();
+        callbacksTimeout.clear();
+        callbacksRepetidos.reset();
+        circuitosAbertos.reset();
+        movimentos.reset();
+        for (int i = 0; i < baldes.length(); i++) baldes.set(i, 0L); // Contagem 0: o anel recomeça vazio
+    }
+
+    // Histograma de latência de um método: faixa i = [2^i, 2^(i+1)) microssegundos
+    private static final class Histograma {
+        final LongAdder total = new LongAdder();
+        final LongAdder somaNanos = new LongAdder();
+        final AtomicLongArray contagem = new AtomicLongArray(FAIXAS);
+
+        void registrar(long nanos) {
+            long micros = Math.max(1, nanos / 1000);
+            int faixa = Math.min(FAIXAS - 1, 63 - Long.numberOfLeadingZeros(micros));
+            contagem.incrementAndGet(faixa);
+            total.increment();
+            somaNanos.add(nanos);
+        }
+
+        long[] faixas() {
+            long[] r = new long[FAIXAS];
+            for (int i = 0; i < FAIXAS; i++) r[i] = contagem.get(i);
+            return r;
+        }
+
+        // Limite superior da faixa que contém o percentil (aproximação da ordem de grandeza)
+        long percentil(double p) {
+            long[] c = faixas();
+            long n = 0;
+            for (long v : c) n += v;
+            if (n == 0) return 0;
+            long alvo = (long) Math.ceil(p / 100.0 * n);
+            long acumulado = 0;
+            for (int i = 0; i < FAIXAS; i++) {
+                acumulado += c[i];
+                if (acumulado >= alvo) return (i == FAIXAS - 1) ? Long.MAX_VALUE : 1L << (i + 1);
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
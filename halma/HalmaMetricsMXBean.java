@@ -0,0 +1,47 @@
+package halma;
+
+import java.util.Map;
+
+// Métricas do servidor expostas via JMX (ObjectName "halma:type=HalmaServer").
+// Mapas são indexados pelo nome do método de IHalmaServer ou do callback de IHalmaClient.
+public interface HalmaMetricsMXBean {
+    // --- Chamadas recebidas (IHalmaServer) ---
+    Map<String, Long> getChamadasPorMetodo();
+
+    Map<String, Double> getLatenciaMediaMicros();
+
+    Map<String, Long> getLatenciaP50Micros();
+
+    Map<String, Long> getLatenciaP99Micros();
+
+    // Contagem por faixa de latência; a faixa i cobre [limite(i-1), limite(i)) microssegundos
+    Map<String, long[]> getHistogramaLatencia();
+
+    long[] getLimitesHistogramaMicros();
+
+    // --- Callbacks entregues (IHalmaClient) ---
+    Map<String, Long> getCallbacksSucesso();
+
+    Map<String, Long> getCallbacksFalha();
+
+    Map<String, Long> getCallbacksTimeout();
+
+    // Novas tentativas após uma falha, e clientes desconectados pelo circuit breaker
+    long getCallbacksRepetidos();
+
+    long getCircuitosAbertos();
+
+    // --- Estado do servidor ---
+    int getPartidasAtivas();
+
+    int getJogadoresConectados();
+
+    int getEspectadores();
+
+    long getMovimentosTotais();
+
+    // Média dos últimos segundos completos
+    double getMovimentosPorSegundo();
+
+    void zerarContadores();
+}
@@ -2,27 +2,95 @@ package halma;
 
 import java.net.DatagramSocket;
 import java.net.ServerSocket;
-import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.RMISocketFactory;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.awt.Point;
 import java.net.InetAddress;
 
-public class HalmaServer extends UnicastRemoteObject implements IHalmaServer {
-    private IHalmaClient player1;
-    private IHalmaClient player2;
-    private String p1Name, p2Name;
+// Objeto RMI exportado uma única vez que hospeda várias partidas independentes (salas).
+// Cada HalmaGame é um ator com a sua caixa de mensagens, processada num pool compartilhado
+// (-Dhalma.game.threads, padrão: número de núcleos); aqui ficam só o mapa de partidas e o matchmaking.
+// A exportação é feita em main(): via RMI (padrão) ou pelo transporte binário NIO (flag -nio).
+public class HalmaServer implements IHalmaServer {
+    private final ConcurrentHashMap<Integer, HalmaGame> games = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<HalmaGame> partidasAbertas = new ConcurrentLinkedQueue<>(); // Com assento livre
+    private final AtomicInteger nextGameId = new AtomicInteger(1);
+    private final HalmaMetrics metrics = new HalmaMetrics(this);
+    private final CallbackDispatcher dispatcher = CallbackDispatcher.fromSystemProperties(metrics);
+    private final HeartbeatService heartbeat = HeartbeatService.fromSystemProperties(dispatcher);
+    private final GameJournal journal;
+    private final ExecutorService gameExecutor = criarPoolDePartidas();
+    // Partidas recuperadas do journal aguardando a volta dos jogadores: nome -> gameIds, um por assento
+    // reservado (o mesmo nome pode ter assento em várias partidas, ou nos dois de uma mesma)
+    private final ConcurrentHashMap<String, Queue<Integer>> reservas = new ConcurrentHashMap<>();
+
+    // Motor das partidas contra o computador: uma tabela de transposição compartilhada por todas
+    // e um pool de busca do tamanho do número de núcleos. Criados só na primeira partida desse tipo.
+    // Cada busca usa uma thread (o paralelismo vem das partidas simultâneas); Lazy SMP só com
+    // -Dhalma.engine.threads.
+    private HalmaEngine engine;
+    private ExecutorService engineExecutor;
+    private final long engineTempoMs = Long.getLong("halma.engine.timeMs", 1000L);
+
+    public HalmaServer() {
+        this(GameJournal.fromSystemProperties());
+    }
+
+    HalmaServer(GameJournal journal) {
+        this.journal = journal;
+        for (GameJournal.PartidaRecuperada r : journal.getRecuperadas()) restaurarPartida(r);
+    }
 
-    private HalmaBoard board;
-    private int currentTurn = 1;
-    private boolean gameActive = false;
-    private int p1Moves = 0, p2Moves = 0;
+    // Recria a partida com o estado do journal; o motor volta ao assento 2 imediatamente,
+    // os jogadores humanos quando se registrarem de novo com o mesmo nome
+    private void restaurarPartida(GameJournal.PartidaRecuperada r) {
+        HalmaGame game = novaPartida(r.gameId);
+        game.restaurar(r);
+        nextGameId.accumulateAndGet(r.gameId + 1, Math::max);
+        if (r.contraComputador) {
+            EnginePlayer computador = new EnginePlayer(this, getEngine(), engineExecutor, engineTempoMs);
+            computador.setRegistro(game.adicionarComputador(computador));
+        }
+        for (int assento = 1; assento <= 2; assento++) {
+            if (!(r.contraComputador && assento == 2)) {
+                reservas.computeIfAbsent(r.nomes[assento], n -> new ConcurrentLinkedQueue<>()).add(r.gameId);
+            }
+        }
+    }
 
-    public HalmaServer(int port) throws RemoteException {
-        super(port); // Exporta o objeto na mesma porta do registro para facilitar firewall
-        board = new HalmaBoard();
+    // O assento reservado a 'nome' na partida deixou de existir (ocupado por outra via ou reserva expirada)
+    void reservaLiberada(String nome, int gameId) {
+        Queue<Integer> fila = reservas.get(nome);
+        if (fila == null) return;
+        fila.remove(gameId);
+        if (fila.isEmpty()) reservas.remove(nome, fila);
+    }
+
+    private HalmaGame novaPartida(int gameId) {
+        HalmaGame game = new HalmaGame(gameId, this, dispatcher, heartbeat, journal, gameExecutor);
+        games.put(gameId, game);
+        return game;
+    }
+
+    private static ExecutorService criarPoolDePartidas() {
+        int threads = Integer.getInteger("halma.game.threads", Runtime.getRuntime().availableProcessors());
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "halma-game-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public static void main(String[] args) {
@@ -51,13 +119,31 @@ public class HalmaServer extends UnicastRemoteObject implements IHalmaServer {
                 s.close(); // Libera para o RMI usar
             }
 
-            // --- 3. INICIALIZAÇÃO DO RMI ---
-            LocateRegistry.createRegistry(portToUse);
-            HalmaServer server = new HalmaServer(portToUse);
-            Naming.rebind("rmi://localhost:" + portToUse + "/HalmaService", server);
+            HalmaServer server = new HalmaServer();
+            server.metrics.registrarMBean();
+            boolean usarNio = false;
+            for (String a : args) {
+                if (a.equalsIgnoreCase("-nio")) usarNio = true;
+            }
+
+            if (usarNio) {
+                // --- 3. INICIALIZAÇÃO DO TRANSPORTE NIO (protocolo binário, sem RMI) ---
+                new NioServerTransport(server, null, portToUse).start();
+            } else {
+                // --- 3. INICIALIZAÇÃO DO RMI ---
+                // Sockets ajustados (TCP_NODELAY, keepalive, buffers, interface) e timeouts nas chamadas aos
+                // clientes. A fábrica global cobre os callbacks de clientes que exportam sem fábrica própria.
+                HalmaSocketFactory sockets = HalmaSocketFactory.fromSystemProperties();
+                RMISocketFactory.setSocketFactory(sockets);
+                // Registro e objeto com a mesma fábrica dividem a porta (facilita o firewall)
+                Registry registry = LocateRegistry.createRegistry(portToUse, sockets, sockets);
+                UnicastRemoteObject.exportObject(server, portToUse, sockets, sockets);
+                // Direto no registro local: com -Dhalma.rmi.bind ele pode não estar escutando em localhost
+                registry.rebind("HalmaService", server);
+            }
 
             System.out.println("------------------------------------------------");
-            System.out.println("SERVIDOR RMI INICIADO!");
+            System.out.println("SERVIDOR " + (usarNio ? "NIO" : "RMI") + " INICIADO!");
             System.out.println("IP:   " + ip);
             System.out.println("PORTA: " + portToUse);
             System.out.println("------------------------------------------------");
@@ -93,211 +179,180 @@ public class HalmaServer extends UnicastRemoteObject implements IHalmaServer {
 
     // --- Implementação da Interface RMI ---
 
+    // Matchmaking: entra na primeira partida com assento livre ou cria uma nova
     @Override
-    public int registrarCliente(IHalmaClient client, String name) throws RemoteException {
-        int playerId = -1;
-        boolean startGame = false;
-        synchronized (this) {
-            if (player1 == null) {
-                player1 = client;
-                p1Name = name;
-                playerId = 1;
-                System.out.println("Jogador 1 conectado: " + name);
-                client.receberMensagem("Aguardando Jogador 2...");
-            } else if (player2 == null) {
-                player2 = client;
-                p2Name = name;
-                playerId = 2;
-                System.out.println("Jogador 2 conectado: " + name);
-                startGame = true; // Marca para iniciar o jogo fora do bloco sync
-            }
-        }
-
-        if (startGame) {
-            // Inicia o jogo em uma nova thread com um pequeno delay
-            // para dar tempo ao cliente 2 de construir sua UI.
-            new Thread(() -> {
-                try { Thread.sleep(200); } catch (InterruptedException e) {}
-                iniciarJogo();
-            }).start();
+    public Registration registrarCliente(IHalmaClient client, String name) throws RemoteException {
+        long inicio = System.nanoTime();
+        try {
+            return registrar(client, name);
+        } finally {
+            metrics.registrarChamada("registrarCliente", inicio);
         }
-        return playerId; // Retorna o ID do jogador ou -1 se o servidor estiver cheio
     }
 
-    @Override
-    public synchronized void enviarMovimento(int playerId, List<Point> sequencia) throws RemoteException {
-        if (!gameActive || playerId != currentTurn) return;
-
-        // Converte List<Point> para array int[] (lógica existente)
-        int[] coords = new int[sequencia.size() * 2];
-        for (int i = 0; i < sequencia.size(); i++) {
-            coords[i * 2] = sequencia.get(i).x;
-            coords[i * 2 + 1] = sequencia.get(i).y;
+    private Registration registrar(IHalmaClient client, String name) {
+        // Jogador de uma partida recuperada do journal volta para um dos seus assentos
+        Queue<Integer> fila = reservas.get(name);
+        Integer reservada;
+        HalmaGame game;
+        while (fila != null && (reservada = fila.poll()) != null) {
+            game = games.get(reservada);
+            if (game == null) continue;
+            Registration r = entrar(game, client, name);
+            if (r.isAceito()) return r;
         }
-
-        boolean valido = board.moverPecaSequence(coords, playerId);
-        if (valido) {
-            // [NOVO] Incrementa o placar
-            if (playerId == 1) p1Moves++;
-            else p2Moves++;
-
-            // Lógica de troca de turno existente
-            currentTurn = (currentTurn == 1) ? 2 : 1;
-
-            // Verifica vitória (lógica existente)
-            if (board.verificarVencedor(playerId)) {
-                gameActive = false;
-                notificarVitoria(playerId, true);
-            } else {
-                notificarTurno();
-            }
-
-            // Atualiza tabuleiro para todos
-            Point lastMove = sequencia.get(sequencia.size() - 1);
-            broadcastUpdate(lastMove);
-
-            // [NOVO] Envia atualização de placar
-            broadcastScore();
-        } else {
-            // Se o movimento for inválido, avisa o jogador (opcional)
-            if (playerId == 1 && player1 != null) player1.receberMensagem("[Erro] Movimento invalido pelo servidor.");
-            if (playerId == 2 && player2 != null) player2.receberMensagem("[Erro] Movimento invalido pelo servidor.");
+        if (fila != null && fila.isEmpty()) reservas.remove(name, fila);
+        while ((game = partidasAbertas.poll()) != null) {
+            Registration r = entrar(game, client, name);
+            if (r.isAceito()) return r;
         }
+        game = novaPartida(nextGameId.getAndIncrement());
+        return entrar(game, client, name);
     }
 
     @Override
-    public synchronized void enviarChat(int playerId, String msg) throws RemoteException {
-        String nome = (playerId == 1) ? p1Name : p2Name;
-        if ("ABANDON_GAME".equals(msg)) {
-            if (!gameActive) return; // Não faz nada se o jogo não estiver ativo
-
-            int winnerId = (playerId == 1) ? 2 : 1;
-            String winnerName = (winnerId == 1) ? p1Name : p2Name;
-
-            broadcastMsg(nome + " desistiu. " + winnerName + " venceu a partida!");
-            notificarVitoria(winnerId, true); // Notifica e reinicia o jogo
-        } else {
-            String formatted = "[CHAT] " + nome + ": " + msg;
-            broadcastMsg(formatted);
+    public Registration entrarNaPartida(IHalmaClient client, String name, int gameId) throws RemoteException {
+        long inicio = System.nanoTime();
+        try {
+            HalmaGame game = games.get(gameId);
+            if (game == null) return new Registration(gameId, -1);
+            partidasAbertas.remove(game);
+            Registration r = entrar(game, client, name);
+            if (r.isAceito()) reservaLiberada(name, gameId);
+            return r;
+        } finally {
+            metrics.registrarChamada("entrarNaPartida", inicio);
         }
     }
 
     @Override
-    public synchronized void solicitarReinicio(int playerId) throws RemoteException {
-        // Apenas o jogador 1 pode solicitar o reinício para evitar chamadas duplicadas.
-        // E só reinicia se o jogo estiver inativo (após uma vitória)
-        // e ambos os jogadores ainda estiverem conectados.
-        if (playerId == 1 && !gameActive && player1 != null && player2 != null) {
-            System.out.println("Jogador 1 solicitou reinicio. Reiniciando o jogo...");
-            iniciarJogo();
+    public Registration registrarContraComputador(IHalmaClient client, String name) throws RemoteException {
+        long inicio = System.nanoTime();
+        try {
+            HalmaGame game = novaPartida(nextGameId.getAndIncrement());
+            Registration reg = game.adicionarJogador(client, name);
+
+            EnginePlayer computador = new EnginePlayer(this, getEngine(), engineExecutor, engineTempoMs);
+            computador.setRegistro(game.adicionarComputador(computador)); // Completa a partida: o jogo começa
+            return reg;
+        } finally {
+            metrics.registrarChamada("registrarContraComputador", inicio);
         }
     }
 
-    private void broadcastScore() {
-        try {
-            if (player1 != null) player1.atualizarPlacar(p1Moves, p2Moves);
-            if (player2 != null) player2.atualizarPlacar(p1Moves, p2Moves);
-        } catch (RemoteException e) {
-            System.err.println("Erro ao enviar placar: " + e.getMessage());
+    private synchronized HalmaEngine getEngine() {
+        if (engine == null) {
+            engine = HalmaEngine.fromSystemProperties(1);
+            AtomicInteger seq = new AtomicInteger();
+            engineExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "halma-engine-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
         }
+        return engine;
     }
 
-    @Override
-    public synchronized void desconectar(int playerId) throws RemoteException {
-        String nome = (playerId == 1) ? p1Name : p2Name;
-        broadcastMsg("O jogador " + nome + " saiu do jogo.");
-
-        if (playerId == 1) player1 = null;
-        else player2 = null;
+    // O jogo começa dentro de adicionarJogador quando o segundo assento é ocupado
+    private Registration entrar(HalmaGame game, IHalmaClient client, String name) {
+        Registration reg = game.adicionarJogador(client, name);
+        if (!reg.isAceito()) return reg;
 
-        gameActive = false;
-        resetGame();
+        if (!game.isCompleta()) partidasAbertas.offer(game);
+        return reg;
     }
 
-    // --- Métodos Auxiliares ---
+    @Override
+    public void enviarMovimento(int gameId, int playerId, long sessao, List<Point> sequencia) throws RemoteException {
+        long inicio = System.nanoTime();
+        HalmaGame game = games.get(gameId);
+        if (game != null) game.enviarMovimento(playerId, sessao, sequencia, inicio); // O ator registra a latência
+        else metrics.registrarChamada("enviarMovimento", inicio);
+    }
 
-    private void iniciarJogo() {
-        gameActive = true;
-        currentTurn = 1;
-        p1Moves = 0;
-        p2Moves = 0;
-        board = new HalmaBoard();
+    @Override
+    public void enviarChat(int gameId, int playerId, long sessao, String msg) throws RemoteException {
+        long inicio = System.nanoTime();
+        HalmaGame game = games.get(gameId);
+        if (game != null) game.enviarChat(playerId, sessao, msg, inicio);
+        else metrics.registrarChamada("enviarChat", inicio);
+    }
 
-        // Notifica os clientes sobre o início e quem são os jogadores
-        try {
-            if (player1 != null) player1.notificarInicioJogo(p1Name, p2Name);
-            if (player2 != null) player2.notificarInicioJogo(p1Name, p2Name);
-        } catch (RemoteException e) {
-            System.err.println("Erro ao notificar inicio de jogo: " + e.getMessage());
-        }
+    @Override
+    public void solicitarReinicio(int gameId, int playerId, long sessao) throws RemoteException {
+        long inicio = System.nanoTime();
+        HalmaGame game = games.get(gameId);
+        if (game != null) game.solicitarReinicio(playerId, sessao, inicio);
+        else metrics.registrarChamada("solicitarReinicio", inicio);
+    }
 
-        broadcastMsg("JOGO INICIADO!");
-        broadcastUpdate(null);
-        notificarTurno();
-        broadcastScore(); // Garante que o placar seja zerado para os clientes
+    @Override
+    public void solicitarTabuleiro(int gameId, int playerId, long sessao) throws RemoteException {
+        long inicio = System.nanoTime();
+        HalmaGame game = games.get(gameId);
+        if (game != null) game.solicitarTabuleiro(playerId, sessao, inicio);
+        else metrics.registrarChamada("solicitarTabuleiro", inicio);
     }
 
-    private void resetGame() {
-        board = new HalmaBoard();
-        currentTurn = 1;
-        p1Moves = 0;
-        p2Moves = 0;
-        broadcastScore();
-        broadcastUpdate(null);
-        // Se ainda houver alguém conectado, avisa para esperar
+    @Override
+    public int assistirPartida(IHalmaSpectator espectador, int gameId) throws RemoteException {
+        long inicio = System.nanoTime();
         try {
-            if (player1 != null) player1.receberMensagem("Esperando oponente...");
-            if (player2 != null) player2.receberMensagem("Esperando oponente...");
-        } catch (RemoteException e) {
+            HalmaGame game = games.get(gameId);
+            return (game == null) ? -1 : game.adicionarEspectador(espectador);
+        } finally {
+            metrics.registrarChamada("assistirPartida", inicio);
         }
     }
 
-    private void notificarTurno() {
+    @Override
+    public void deixarDeAssistir(int gameId, int espectadorId) throws RemoteException {
+        long inicio = System.nanoTime();
         try {
-            if (player1 != null) player1.definirTurno(currentTurn == 1);
-            if (player2 != null) player2.definirTurno(currentTurn == 2);
-        } catch (RemoteException e) {
-            System.err.println("Erro ao notificar turno (cliente caiu?)");
+            HalmaGame game = games.get(gameId);
+            if (game != null) game.removerEspectador(espectadorId);
+        } finally {
+            metrics.registrarChamada("deixarDeAssistir", inicio);
         }
     }
 
-    private void broadcastUpdate(Point lastMove) {
-        try {
-            // Envia o objeto board serializado
-            if (player1 != null) player1.atualizarTabuleiro(board, lastMove);
-            if (player2 != null) player2.atualizarTabuleiro(board, lastMove);
-        } catch (RemoteException e) {
-            // Lidar com desconexão silenciosa
-        }
+    @Override
+    public void desconectar(int gameId, int playerId, long sessao) {
+        long inicio = System.nanoTime();
+        HalmaGame game = games.get(gameId);
+        if (game != null) game.desconectar(playerId, sessao, inicio);
+        else metrics.registrarChamada("desconectar", inicio);
     }
 
-    private void notificarVitoria(int winnerId, boolean reiniciar) {
-        System.out.println("Jogador " + winnerId + " venceu o jogo!");
-        broadcastMsg("O Jogador " + winnerId + " venceu!");
+    // Chamados pelo ator da partida depois que um jogador sai
+    void partidaEncerrada(HalmaGame game) {
+        // Partida vazia: libera a sala
+        games.remove(game.getId(), game);
+        partidasAbertas.remove(game);
+    }
 
-        try {
-            // Notifica o Jogador 1
-            if (player1 != null) {
-                player1.notificarFimDeJogo(winnerId);
-            }
-            // Notifica o Jogador 2
-            if (player2 != null) {
-                player2.notificarFimDeJogo(winnerId);
-            }
-        } catch (RemoteException e) {
-            System.err.println("Erro ao notificar fim de jogo: " + e.getMessage());
-        }
+    void partidaComVaga(HalmaGame game) {
+        partidasAbertas.offer(game);
+    }
 
-        // Opcional: Resetar o jogo automaticamente ou encerrar
-        gameActive = false;
+    int getPartidasAtivas() {
+        return games.size();
+    }
 
+    int getJogadoresConectados() {
+        int total = 0;
+        for (HalmaGame g : games.values()) total += g.getJogadoresConectados();
+        return total;
     }
 
-    private void broadcastMsg(String msg) {
-        try {
-            if (player1 != null) player1.receberMensagem(msg);
-            if (player2 != null) player2.receberMensagem(msg);
-        } catch (RemoteException e) {
-        }
+    int getEspectadores() {
+        int total = 0;
+        for (HalmaGame g : games.values()) total += g.getEspectadores();
+        return total;
+    }
+
+    // RTT medido pelo heartbeat, por "gameId:playerId", em microssegundos
+    Map<String, Long> getRttsMicros() {
+        return heartbeat.getRttsMicros();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package halma;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.rmi.server.RMISocketFactory;
+import java.util.Objects;
+
+// Fábrica de sockets RMI do jogo, usada nas exportações do servidor e dos callbacks dos clientes e também
+// instalada como fábrica global (para os stubs exportados sem fábrica própria).
+//  - Todo socket, aberto ou aceito, sai com TCP_NODELAY, SO_KEEPALIVE e os buffers de envio/recepção
+//    configurados (0 = padrão do sistema operacional).
+//  - O socket de escuta pode ser preso a uma interface (bindAddress; null = todas).
+//  - Conexões abertas têm timeout de conexão e de leitura: uma chamada a um par cuja rede caiu falha em
+//    readTimeoutMs (SocketTimeoutException) em vez de prender a thread até o timeout de TCP do sistema.
+// Como fábrica de cliente ela viaja no stub: quem abre a conexão é o outro processo. Por isso os timeouts
+// não são serializados e valem sempre os do processo que conecta (o servidor decide quanto espera por um
+// callback, não o cliente). equals/hashCode deixam o RMI reaproveitar conexões e compartilhar a porta
+// entre objetos exportados com fábricas iguais.
+class HalmaSocketFactory extends RMISocketFactory implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Timeouts do processo local (-Dhalma.rmi.connectTimeoutMs=3000, -Dhalma.rmi.readTimeoutMs=4000; 0 = sem).
+    // A leitura fica abaixo do halma.callback.timeoutMs: a chamada falha sozinha antes de o vigia desistir dela.
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("halma.rmi.connectTimeoutMs", 3000);
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("halma.rmi.readTimeoutMs", 4000);
+
+    private final int sendBuffer;
+    private final int receiveBuffer;
+    private final String bindAddress;
+
+    HalmaSocketFactory(int sendBuffer, int receiveBuffer, String bindAddress) {
+        this.sendBuffer = sendBuffer;
+        this.receiveBuffer = receiveBuffer;
+        this.bindAddress = bindAddress;
+    }
+
+    // -Dhalma.rmi.sendBuffer=0, -Dhalma.rmi.receiveBuffer=0 e -Dhalma.rmi.bind=<ip da interface>.
+    // Buffers fixos desligam o ajuste automático de janela do Linux; só valem a pena em enlaces com RTT alto.
+    static HalmaSocketFactory fromSystemProperties() {
+        String bind = System.getProperty("halma.rmi.bind");
+        return new HalmaSocketFactory(Integer.getInteger("halma.rmi.sendBuffer", 0),
+                Integer.getInteger("halma.rmi.receiveBuffer", 0),
+                (bind == null || bind.isBlank()) ? null : bind.trim());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket s = new Socket();
+        try {
+            // Buffer de recepção antes de conectar: janelas acima de 64 KiB só são negociadas no handshake
+            if (receiveBuffer > 0) s.setReceiveBufferSize(receiveBuffer);
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setSoTimeout(READ_TIMEOUT_MS);
+            configurar(s);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        return s;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        // Só os sockets abertos têm timeout de leitura: um socket aceito fica esperando a próxima
+        // chamada por tempo indeterminado entre uma chamada e outra
+        ServerSocket ss = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                Socket s = super.accept();
+                configurar(s);
+                return s;
+            }
+        };
+        try {
+            ss.setReuseAddress(true);
+            if (receiveBuffer > 0) ss.setReceiveBufferSize(receiveBuffer); // Herdado pelos sockets aceitos
+            ss.bind(bindAddress == null ? new InetSocketAddress(port)
+                    : new InetSocketAddress(InetAddress.getByName(bindAddress), port));
+        } catch (IOException e) {
+            ss.close();
+            throw e;
+        }
+        return ss;
+    }
+
+    private void configurar(Socket s) throws SocketException {
+        s.setTcpNoDelay(true);
+        s.setKeepAlive(true);
+        if (sendBuffer > 0) s.setSendBufferSize(sendBuffer);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HalmaSocketFactory)) return false;
+        HalmaSocketFactory f = (HalmaSocketFactory) o;
+        return sendBuffer == f.sendBuffer && receiveBuffer == f.receiveBuffer
+                && Objects.equals(bindAddress, f.bindAddress);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sendBuffer, receiveBuffer, bindAddress);
+    }
+
+    @Override
+    public String toString() {
+        return "HalmaSocketFactory[send=" + sendBuffer + ", receive=" + receiveBuffer
+                + ", bind=" + (bindAddress == null ? "*" : bindAddress) + "]";
+    }
+}
@@ -0,0 +1,39 @@
+package halma;
+
+import java.nio.ByteBuffer;
+import java.rmi.RemoteException;
+
+// Lado do espectador via RMI: separa os frames recebidos em receberEventos e entrega cada um ao IHalmaClient
+// 'destino' (a mesma interface de quem joga, então a UI e os bots servem também para assistir).
+// Via NIO não é preciso: o servidor escreve os frames direto no socket e o NioServerProxy os entrega.
+class HalmaSpectator implements IHalmaSpectator {
+    private final IHalmaClient destino;
+
+    HalmaSpectator(IHalmaClient destino) {
+        this.destino = destino;
+    }
+
+    @Override
+    public void receberEventos(byte[] frames) throws RemoteException {
+        ByteBuffer in = ByteBuffer.wrap(frames);
+        ByteBuffer f;
+        while ((f = NioProtocol.proximoFrame(in)) != null) {
+            byte tipo = f.get();
+            switch (tipo) {
+                case NioProtocol.MENSAGEM:
+                    destino.receberMensagem(NioProtocol.getString(f));
+                    break;
+                case NioProtocol.ESTADO:
+                    destino.atualizarEstado(NioProtocol.getEvento(f));
+                    break;
+                case NioProtocol.INICIO: {
+                    String p1 = NioProtocol.getString(f);
+                    destino.notificarInicioJogo(p1, NioProtocol.getString(f));
+                    break;
+                }
+                default:
+                    throw new RemoteException("Tipo de frame desconhecido: " + tipo);
+            }
+        }
+    }
+}
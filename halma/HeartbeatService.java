@@ -0,0 +1,164 @@
+package halma;
+
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Verificação de vida dos clientes via IHalmaClient.ping().
+// Um único agendador compartilhado dispara os pings com intervalo aleatorizado (jitter), para que
+// milhares de sessões não pinguem ao mesmo tempo; a chamada em si roda no pool do CallbackDispatcher.
+// Mede o RTT de cada cliente e remove quem falha (ou não responde) várias vezes seguidas.
+class HeartbeatService {
+    private final CallbackDispatcher dispatcher;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final int maxFalhas;
+
+    HeartbeatService(CallbackDispatcher dispatcher, long intervalMillis, long timeoutMillis, int maxFalhas) {
+        this.dispatcher = dispatcher;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxFalhas = maxFalhas;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "halma-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Configuração por propriedades de sistema (-Dhalma.heartbeat.intervalMs=..., etc.)
+    static HeartbeatService fromSystemProperties(CallbackDispatcher dispatcher) {
+        return new HeartbeatService(dispatcher,
+                Long.getLong("halma.heartbeat.intervalMs", 5000L),
+                Long.getLong("halma.heartbeat.timeoutMs", 5000L),
+                Integer.getInteger("halma.heartbeat.maxFalhas", 3));
+    }
+
+    // Começa a monitorar o cliente; 'onMorto' é chamado uma única vez quando ele for considerado morto
+    Session registrar(String chave, IHalmaClient client, Runnable onMorto) {
+        Session s = new Session(chave, client, onMorto);
+        Session antiga = sessions.put(chave, s);
+        if (antiga != null) antiga.cancelar();
+        s.agendarProximo();
+        return s;
+    }
+
+    // RTT médio (EWMA) por sessão, em microssegundos; -1 se ainda não houve resposta
+    Map<String, Long> getRttsMicros() {
+        Map<String, Long> rtts = new TreeMap<>();
+        for (Session s : sessions.values()) {
+            rtts.put(s.chave, s.rttMedioNanos < 0 ? -1L : s.rttMedioNanos / 1000);
+        }
+        return rtts;
+    }
+
+    int getSessoes() {
+        return sessions.size();
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private long proximoIntervalo() {
+        // Intervalo +-25% para espalhar os pings no tempo
+        long jitter = intervalNanos / 4;
+        return intervalNanos - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
+    final class Session {
+        private final String chave;
+        private final IHalmaClient client;
+        private final Runnable onMorto;
+
+        private volatile boolean cancelada = false;
+        private volatile long rttMedioNanos = -1;
+        // Zerado e incrementado pela thread do pool que concluiu o ping ou pelo agendador (timeout)
+        private final AtomicInteger falhasSeguidas = new AtomicInteger();
+        private long pingAtual = 0;   // Sequência do ping em andamento
+        private boolean emAndamento = false;
+
+        private Session(String chave, IHalmaClient client, Runnable onMorto) {
+            this.chave = chave;
+            this.client = client;
+            this.onMorto = onMorto;
+        }
+
+        void cancelar() {
+            cancelada = true;
+            sessions.remove(chave, this);
+        }
+
+        private void agendarProximo() {
+            if (cancelada) return;
+            scheduler.schedule(this::disparar, proximoIntervalo(), TimeUnit.NANOSECONDS);
+        }
+
+        // Roda no agendador: só despacha o ping para o pool e arma o timeout
+        private void disparar() {
+            if (cancelada) return;
+            final long seq;
+            synchronized (this) {
+                seq = ++pingAtual;
+                emAndamento = true;
+            }
+            dispatcher.agendar(() -> pingar(seq));
+            scheduler.schedule(() -> expirar(seq), timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void pingar(long seq) {
+            long inicio = System.nanoTime();
+            boolean ok;
+            try {
+                client.ping();
+                ok = true;
+            } catch (RemoteException | RuntimeException e) {
+                ok = false;
+            }
+            long rtt = System.nanoTime() - inicio;
+            synchronized (this) {
+                if (seq != pingAtual || !emAndamento) return; // Já expirou
+                emAndamento = false;
+            }
+            if (ok) dispatcher.getMetrics().callbackOk("ping");
+            else dispatcher.getMetrics().callbackFalha("ping");
+            if (ok) {
+                falhasSeguidas.set(0);
+                long media = rttMedioNanos;
+                rttMedioNanos = (media < 0) ? rtt : media + (rtt - media) / 8;
+                agendarProximo();
+            } else {
+                registrarFalha();
+            }
+        }
+
+        private void expirar(long seq) {
+            synchronized (this) {
+                if (seq != pingAtual || !emAndamento) return; // Respondeu a tempo
+                emAndamento = false;
+            }
+            dispatcher.getMetrics().callbackTimeout("ping");
+            registrarFalha();
+        }
+
+        private void registrarFalha() {
+            if (cancelada) return;
+            if (falhasSeguidas.incrementAndGet() >= maxFalhas) {
+                System.err.println("Heartbeat: cliente " + chave + " sem resposta; desconectando.");
+                cancelar();
+                dispatcher.agendar(onMorto);
+            } else {
+                agendarProximo();
+            }
+        }
+    }
+}
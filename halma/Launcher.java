@@ -7,6 +7,21 @@ public class Launcher {
                 stopServer();
                 return;
             }
+            if (args.length > 0 && args[0].equalsIgnoreCase("-loadtest")) {
+                HalmaLoadTest.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+                return;
+            }
+            if (args.length > 0 && args[0].equalsIgnoreCase("-buildbook")) {
+                HalmaBookBuilder.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+                return;
+            }
+            // -nio: usa o transporte binário NIO em vez de RMI (servidor e cliente precisam usar a mesma flag)
+            boolean nio = false;
+            for (String a : args) {
+                if (a.equalsIgnoreCase("-nio")) nio = true;
+            }
+            String nioArg = nio ? " -nio" : "";
+
             if (args.length > 0 && args[0].equalsIgnoreCase("-server")) {
                 String jarPath = System.getProperty("java.class.path");
                 String os = System.getProperty("os.name").toLowerCase();
@@ -14,18 +29,20 @@ public class Launcher {
                 try {
                         if (os.contains("win")) {
                         try {
-                            ProcessBuilder pb = new ProcessBuilder("java", "-cp", jarPath, "halma.HalmaServer");
+                            ProcessBuilder pb = nio
+                                    ? new ProcessBuilder("java", "-cp", jarPath, "halma.HalmaServer", "-nio")
+                                    : new ProcessBuilder("java", "-cp", jarPath, "halma.HalmaServer");
                             pb.redirectErrorStream(true);
                             pb.start();
                             launched = true;
                         } catch (Throwable e) {
-                            ProcessBuilder pb2 = new ProcessBuilder("cmd", "/c", "start", "/B", "\"Halma Server\"", "java", "-cp", jarPath, "halma.HalmaServer");
+                            ProcessBuilder pb2 = new ProcessBuilder("cmd", "/c", "start", "/B", "\"Halma Server\"", "java", "-cp", jarPath, "halma.HalmaServer" + nioArg);
                             pb2.redirectErrorStream(true);
                             pb2.start();
                             launched = true;
                         }
                     } else {
-                        String cmd = String.format("nohup java -cp '%s' halma.HalmaServer > /dev/null 2>&1 &", jarPath);
+                        String cmd = String.format("nohup java -cp '%s' halma.HalmaServer%s > /dev/null 2>&1 &", jarPath, nioArg);
                         ProcessBuilder pb = new ProcessBuilder("sh", "-c", cmd);
                         pb.start();
                         launched = true;
@@ -39,10 +56,10 @@ public class Launcher {
                     //return;
                 }
                 
-                HalmaServer.main(new String[0]);
+                HalmaServer.main(nio ? new String[] { "-nio" } : new String[0]);
             } else {
-                String host = (args.length > 0) ? args[0] : "localhost";
-                HalmaClient.main(new String[] { host });
+                String host = (args.length > 0 && !args[0].startsWith("-")) ? args[0] : "localhost";
+                HalmaClient.main(nio ? new String[] { host, "-nio" } : new String[] { host });
             }
         } catch (Exception e) {
             System.err.println("Erro ao iniciar: " + e.getMessage());
@@ -0,0 +1,129 @@
+package halma;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Buffer reutilizável de movimentos preenchido pelo gerador do HalmaBoard.
+// Cada movimento guarda origem, destino (índice de casa = y * 8 + x) e o caminho completo
+// (origem, casas intermediárias dos pulos e destino) num único array compartilhado,
+// para que bots e a UI não aloquem uma lista por casa a cada geração.
+public final class MoveBuffer {
+    private int count = 0;
+    private int[] from;
+    private int[] to;
+    private int[] pathStart;
+    private int[] pathLen;
+    private int[] squares;
+    private int squareCount = 0;
+
+    // Áreas de trabalho do flood-fill (reaproveitadas entre gerações)
+    final int[] parent = new int[64];
+    final int[] queue = new int[64];
+
+    public MoveBuffer() {
+        this(256);
+    }
+
+    public MoveBuffer(int capacity) {
+        int c = Math.max(16, capacity);
+        from = new int[c];
+        to = new int[c];
+        pathStart = new int[c];
+        pathLen = new int[c];
+        squares = new int[c * 4];
+    }
+
+    public void clear() {
+        count = 0;
+        squareCount = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getFrom(int i) {
+        return from[i];
+    }
+
+    public int getTo(int i) {
+        return to[i];
+    }
+
+    public int getToX(int i) {
+        return to[i] & 7;
+    }
+
+    public int getToY(int i) {
+        return to[i] >>> 3;
+    }
+
+    // Número de casas do caminho (inclui origem e destino)
+    public int getPathLength(int i) {
+        return pathLen[i];
+    }
+
+    public int getPathSquare(int i, int k) {
+        return squares[pathStart[i] + k];
+    }
+
+    // Índice do movimento que leva a (x, y), ou -1 se nenhum
+    public int indexOfTarget(int x, int y) {
+        int sq = (y << 3) | x;
+        for (int i = 0; i < count; i++) {
+            if (to[i] == sq) return i;
+        }
+        return -1;
+    }
+
+    // Caminho no formato aceito por HalmaBoard.moverPecaSequence: [x1, y1, x2, y2, ...]
+    public int[] toCoords(int i) {
+        int len = pathLen[i];
+        int[] coords = new int[len * 2];
+        for (int k = 0; k < len; k++) {
+            int sq = squares[pathStart[i] + k];
+            coords[k * 2] = sq & 7;
+            coords[k * 2 + 1] = sq >>> 3;
+        }
+        return coords;
+    }
+
+    // Caminho no formato enviado ao servidor (IHalmaServer.enviarMovimento)
+    public List<Point> getPath(int i) {
+        int len = pathLen[i];
+        List<Point> path = new ArrayList<>(len);
+        for (int k = 0; k < len; k++) {
+            int sq = squares[pathStart[i] + k];
+            path.add(new Point(sq & 7, sq >>> 3));
+        }
+        return path;
+    }
+
+    // Reserva espaço para um movimento com 'len' casas e devolve o offset onde o caminho deve ser escrito
+    int add(int fromSq, int toSq, int len) {
+        if (count == from.length) {
+            int c = count * 2;
+            from = Arrays.copyOf(from, c);
+            to = Arrays.copyOf(to, c);
+            pathStart = Arrays.copyOf(pathStart, c);
+            pathLen = Arrays.copyOf(pathLen, c);
+        }
+        if (squareCount + len > squares.length) {
+            squares = Arrays.copyOf(squares, Math.max(squares.length * 2, squareCount + len));
+        }
+        int offset = squareCount;
+        from[count] = fromSq;
+        to[count] = toSq;
+        pathStart[count] = offset;
+        pathLen[count] = len;
+        count++;
+        squareCount += len;
+        return offset;
+    }
+
+    void setSquare(int offset, int sq) {
+        squares[offset] = sq;
+    }
+}
@@ -0,0 +1,219 @@
+package halma;
+
+import java.awt.Point;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Protocolo binário do transporte NIO (alternativa ao RMI).
+// Cada mensagem é um frame: [int tamanho][byte tipo][payload], com tamanho = 1 + bytes do payload.
+// Os tipos espelham os métodos de IHalmaServer (cliente -> servidor) e IHalmaClient (servidor -> cliente).
+final class NioProtocol {
+    static final int MAX_FRAME = 1 << 16;
+
+    // Cliente -> servidor
+    static final byte REGISTRAR = 1;   // int reqId, String nome
+    static final byte ENTRAR = 2;      // int reqId, String nome, int gameId
+    static final byte MOVIMENTO = 3;   // int gameId, int playerId, long sessao, pontos (x, y) não validados
+    static final byte CHAT = 4;        // int gameId, int playerId, long sessao, String msg
+    static final byte DESCONECTAR = 5; // int gameId, int playerId, long sessao
+    static final byte REINICIO = 6;    // int gameId, int playerId, long sessao
+    static final byte TABULEIRO = 7;   // int gameId, int playerId, long sessao
+    static final byte PONG = 8;        // long seq
+    static final byte REGISTRAR_IA = 9; // int reqId, String nome (partida contra o computador)
+    static final byte ASSISTIR = 10;   // int reqId, int gameId (resposta: REGISTRO com o id do espectador)
+    static final byte DEIXAR = 11;     // int gameId, int espectadorId
+
+    // Servidor -> cliente
+    static final byte REGISTRO = 20;   // int reqId, int gameId, int playerId, long sessao
+    static final byte MENSAGEM = 21;   // String msg
+    static final byte ESTADO = 22;     // evento
+    static final byte INICIO = 23;     // String p1, String p2
+    static final byte PING = 24;       // long seq
+
+    private static final int FLAG_SNAPSHOT = 1;
+    private static final int FLAG_CAMINHO = 2;
+
+    private NioProtocol() {
+    }
+
+    // Monta um frame num buffer que cresce conforme necessário
+    static final class Encoder {
+        private ByteBuffer buf;
+
+        Encoder(byte type) {
+            buf = ByteBuffer.allocate(64);
+            buf.putInt(0); // Tamanho, preenchido em finish()
+            buf.put(type);
+        }
+
+        private void ensure(int n) {
+            if (buf.remaining() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + n));
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+        }
+
+        Encoder putByte(int v) {
+            ensure(1);
+            buf.put((byte) v);
+            return this;
+        }
+
+        Encoder putInt(int v) {
+            ensure(4);
+            buf.putInt(v);
+            return this;
+        }
+
+        Encoder putLong(long v) {
+            ensure(8);
+            buf.putLong(v);
+            return this;
+        }
+
+        Encoder putString(String s) {
+            byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            ensure(2 + bytes.length);
+            buf.putShort((short) bytes.length);
+            buf.put(bytes);
+            return this;
+        }
+
+        // Caminho como bytes de casa (y * 8 + x), precedidos do número de casas em varint
+        // (um byte até 127, o mesmo formato antigo para os caminhos que o servidor aceita)
+        Encoder putCaminho(int[] coords) {
+            int n = coords.length / 2;
+            ensure(5 + n);
+            int v = n;
+            while ((v & ~0x7F) != 0) {
+                buf.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+            for (int i = 0; i < n; i++) buf.put((byte) ((coords[i * 2 + 1] << 3) | coords[i * 2]));
+            return this;
+        }
+
+        // Pontos enviados pelo cliente ainda não foram validados: x e y vão em bytes separados
+        Encoder putPontos(List<Point> pontos) {
+            int n = Math.min(pontos.size(), Short.MAX_VALUE);
+            ensure(2 + n * 2);
+            buf.putShort((short) n);
+            for (int i = 0; i < n; i++) {
+                Point p = pontos.get(i);
+                buf.put(coordenada(p.x));
+                buf.put(coordenada(p.y));
+            }
+            return this;
+        }
+
+        // Valores fora do alcance de um byte viram -1 (continuam inválidos no servidor)
+        private static byte coordenada(int v) {
+            return (v < Byte.MIN_VALUE || v > Byte.MAX_VALUE) ? (byte) -1 : (byte) v;
+        }
+
+        Encoder putEvento(GameStateEvent ev) {
+            int[] caminho = ev.getCaminho();
+            int flags = (ev.isSnapshot() ? FLAG_SNAPSHOT : 0) | (caminho != null ? FLAG_CAMINHO : 0);
+            putLong(ev.getVersao());
+            putByte(flags);
+            if (ev.isSnapshot()) {
+                BoardSnapshot b = ev.getTabuleiro();
+                putLong(b.getOcupacao(1));
+                putLong(b.getOcupacao(2));
+            }
+            if (caminho != null) putCaminho(caminho);
+            putByte(ev.getTurno());
+            putInt(ev.getP1Moves());
+            putInt(ev.getP2Moves());
+            putByte(ev.getVencedor());
+            return this;
+        }
+
+        // Buffer pronto para escrita no canal
+        ByteBuffer finish() {
+            buf.putInt(0, buf.position() - 4);
+            buf.flip();
+            return buf;
+        }
+
+        // Frame completo num array do tamanho exato (para ser compartilhado entre vários destinatários)
+        byte[] finishBytes() {
+            ByteBuffer b = finish();
+            byte[] bytes = new byte[b.remaining()];
+            b.get(bytes);
+            return bytes;
+        }
+    }
+
+    // Extrai o próximo frame completo de 'in' (em modo leitura). Retorna o frame (tipo + payload)
+    // ou null se ainda faltam bytes; nesse caso a posição de 'in' não é alterada.
+    static ByteBuffer proximoFrame(ByteBuffer in) {
+        if (in.remaining() < 4) return null;
+        int len = in.getInt(in.position());
+        if (len <= 0 || len > MAX_FRAME) throw new IllegalStateException("Frame invalido: " + len);
+        if (in.remaining() < 4 + len) return null;
+        in.position(in.position() + 4);
+        ByteBuffer frame = in.slice();
+        frame.limit(len);
+        in.position(in.position() + len);
+        return frame;
+    }
+
+    static String getString(ByteBuffer b) {
+        int len = b.getShort() & 0xFFFF;
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int[] getCaminhoCoords(ByteBuffer b) {
+        int n = 0;
+        for (int shift = 0; ; shift += 7) {
+            int v = b.get();
+            n |= (v & 0x7F) << shift;
+            if (v >= 0) break;
+            if (shift >= 28) throw new IllegalStateException("Tamanho de caminho invalido");
+        }
+        if (n < 0 || n > HalmaBoard.MAX_CASAS_CAMINHO || n > b.remaining()) {
+            throw new IllegalStateException("Caminho invalido: " + n + " casas");
+        }
+        int[] coords = new int[n * 2];
+        for (int i = 0; i < n; i++) {
+            int sq = b.get() & 0xFF;
+            coords[i * 2] = sq & 7;
+            coords[i * 2 + 1] = sq >>> 3;
+        }
+        return coords;
+    }
+
+    static List<Point> getPontos(ByteBuffer b) {
+        int n = b.getShort();
+        List<Point> pontos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = b.get();
+            int y = b.get();
+            pontos.add(new Point(x, y));
+        }
+        return pontos;
+    }
+
+    static GameStateEvent getEvento(ByteBuffer b) {
+        long versao = b.getLong();
+        int flags = b.get();
+        BoardSnapshot board = null;
+        if ((flags & FLAG_SNAPSHOT) != 0) board = new BoardSnapshot(versao, b.getLong(), b.getLong());
+        int[] caminho = ((flags & FLAG_CAMINHO) != 0) ? getCaminhoCoords(b) : null;
+        int turno = b.get();
+        int p1Moves = b.getInt();
+        int p2Moves = b.getInt();
+        int vencedor = b.get();
+        if (board != null) return GameStateEvent.snapshot(board, turno, p1Moves, p2Moves, vencedor);
+        if (caminho != null) return GameStateEvent.movimento(versao, caminho, turno, p1Moves, p2Moves, vencedor);
+        return GameStateEvent.estado(versao, turno, p1Moves, p2Moves, vencedor);
+    }
+}
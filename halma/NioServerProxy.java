@@ -0,0 +1,187 @@
+package halma;
+
+import java.awt.Point;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// IHalmaServer do lado do cliente sobre o transporte NIO.
+// Chamadas sem retorno são apenas escritas no socket (pipelining, sem esperar resposta);
+// o registro espera a resposta correspondente. Uma thread leitora entrega os callbacks ao 'callbacks'.
+class NioServerProxy implements IHalmaServer {
+    private static final long REGISTRO_TIMEOUT_MS = 10000;
+
+    private final SocketChannel ch;
+    private final IHalmaClient callbacks;
+    private final Object writeLock = new Object();
+    private final AtomicInteger reqSeq = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<Registration>> pendentes = new ConcurrentHashMap<>();
+
+    // O IHalmaClient passado em registrarCliente/entrarNaPartida (e o IHalmaSpectator de assistirPartida)
+    // é ignorado: os callbacks desta conexão sempre vão para 'callbacks'
+    NioServerProxy(String host, int port, IHalmaClient callbacks) throws IOException {
+        this.callbacks = callbacks;
+        this.ch = SocketChannel.open();
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ch.connect(new InetSocketAddress(host, port));
+
+        Thread reader = new Thread(this::lerCallbacks, "halma-nio-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    @Override
+    public Registration registrarCliente(IHalmaClient cliente, String nome) throws RemoteException {
+        int reqId = reqSeq.incrementAndGet();
+        return esperarRegistro(reqId, new NioProtocol.Encoder(NioProtocol.REGISTRAR)
+                .putInt(reqId).putString(nome).finish());
+    }
+
+    @Override
+    public Registration entrarNaPartida(IHalmaClient cliente, String nome, int gameId) throws RemoteException {
+        int reqId = reqSeq.incrementAndGet();
+        return esperarRegistro(reqId, new NioProtocol.Encoder(NioProtocol.ENTRAR)
+                .putInt(reqId).putString(nome).putInt(gameId).finish());
+    }
+
+    @Override
+    public Registration registrarContraComputador(IHalmaClient cliente, String nome) throws RemoteException {
+        int reqId = reqSeq.incrementAndGet();
+        return esperarRegistro(reqId, new NioProtocol.Encoder(NioProtocol.REGISTRAR_IA)
+                .putInt(reqId).putString(nome).finish());
+    }
+
+    // O servidor escreve os frames dos espectadores direto no socket: chegam como callbacks comuns
+    @Override
+    public int assistirPartida(IHalmaSpectator espectador, int gameId) throws RemoteException {
+        int reqId = reqSeq.incrementAndGet();
+        return esperarRegistro(reqId, new NioProtocol.Encoder(NioProtocol.ASSISTIR)
+                .putInt(reqId).putInt(gameId).finish()).getPlayerId();
+    }
+
+    @Override
+    public void deixarDeAssistir(int gameId, int espectadorId) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.DEIXAR).putInt(gameId).putInt(espectadorId).finish());
+    }
+
+    @Override
+    public void enviarMovimento(int gameId, int playerId, long sessao, List<Point> sequencia) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.MOVIMENTO)
+                .putInt(gameId).putInt(playerId).putLong(sessao).putPontos(sequencia).finish());
+    }
+
+    @Override
+    public void enviarChat(int gameId, int playerId, long sessao, String mensagem) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.CHAT)
+                .putInt(gameId).putInt(playerId).putLong(sessao).putString(mensagem).finish());
+    }
+
+    @Override
+    public void desconectar(int gameId, int playerId, long sessao) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.DESCONECTAR)
+                .putInt(gameId).putInt(playerId).putLong(sessao).finish());
+    }
+
+    @Override
+    public void solicitarReinicio(int gameId, int playerId, long sessao) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.REINICIO)
+                .putInt(gameId).putInt(playerId).putLong(sessao).finish());
+    }
+
+    @Override
+    public void solicitarTabuleiro(int gameId, int playerId, long sessao) throws RemoteException {
+        escrever(new NioProtocol.Encoder(NioProtocol.TABULEIRO)
+                .putInt(gameId).putInt(playerId).putLong(sessao).finish());
+    }
+
+    private Registration esperarRegistro(int reqId, ByteBuffer frame) throws RemoteException {
+        CompletableFuture<Registration> f = new CompletableFuture<>();
+        pendentes.put(reqId, f);
+        try {
+            escrever(frame);
+            return f.get(REGISTRO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (RemoteException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RemoteException("Falha no registro via NIO", e);
+        } finally {
+            pendentes.remove(reqId);
+        }
+    }
+
+    private void escrever(ByteBuffer frame) throws RemoteException {
+        try {
+            synchronized (writeLock) {
+                while (frame.hasRemaining()) ch.write(frame);
+            }
+        } catch (IOException e) {
+            throw new RemoteException("Falha ao enviar via NIO: " + e.getMessage(), e);
+        }
+    }
+
+    private void lerCallbacks() {
+        try (InputStream is = Channels.newInputStream(ch)) {
+            DataInputStream in = new DataInputStream(is);
+            while (true) {
+                int len = in.readInt();
+                if (len <= 0 || len > NioProtocol.MAX_FRAME) throw new IOException("Frame invalido: " + len);
+                byte[] bytes = new byte[len];
+                in.readFully(bytes);
+                despachar(ByteBuffer.wrap(bytes));
+            }
+        } catch (EOFException e) {
+            // Servidor fechou a conexão
+        } catch (IOException e) {
+            System.err.println("Conexao NIO encerrada: " + e.getMessage());
+        } finally {
+            for (CompletableFuture<Registration> f : pendentes.values()) {
+                f.completeExceptionally(new IOException("Conexao NIO encerrada"));
+            }
+        }
+    }
+
+    private void despachar(ByteBuffer f) throws RemoteException {
+        byte tipo = f.get();
+        switch (tipo) {
+            case NioProtocol.REGISTRO: {
+                int reqId = f.getInt();
+                Registration r = new Registration(f.getInt(), f.getInt(), f.getLong());
+                CompletableFuture<Registration> pendente = pendentes.get(reqId);
+                if (pendente != null) pendente.complete(r);
+                break;
+            }
+            case NioProtocol.MENSAGEM:
+                callbacks.receberMensagem(NioProtocol.getString(f));
+                break;
+            case NioProtocol.ESTADO:
+                callbacks.atualizarEstado(NioProtocol.getEvento(f));
+                break;
+            case NioProtocol.INICIO: {
+                String p1 = NioProtocol.getString(f);
+                callbacks.notificarInicioJogo(p1, NioProtocol.getString(f));
+                break;
+            }
+            case NioProtocol.PING: {
+                long seq = f.getLong();
+                callbacks.ping();
+                escrever(new NioProtocol.Encoder(NioProtocol.PONG).putLong(seq).finish());
+                break;
+            }
+            default:
+                throw new RemoteException("Tipo de frame desconhecido: " + tipo);
+        }
+    }
+}
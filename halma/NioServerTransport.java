@@ -0,0 +1,332 @@
+package halma;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transporte NIO do servidor: um único seletor atende todas as conexões com o protocolo binário
+// de NioProtocol. Os frames recebidos são despachados, em ordem, para o mesmo IHalmaServer usado pelo RMI;
+// os callbacks viram frames enfileirados por conexão e escritos pelo seletor.
+// Para espectadores, os frames já chegam codificados pela partida e vão para a fila sem cópia nem recodificação.
+// A fila de escrita de cada conexão tem um limite em bytes: um cliente que parou de ler tem a conexão fechada
+// e o callback falha com RemoteException, como uma chamada RMI (ClientOutbox, vigia e circuito tratam igual).
+// Chamadas que esperam pelo ator da partida (registro, assistir) rodam num pool à parte, em ordem
+// por conexão, para não prender o seletor.
+class NioServerTransport implements Runnable {
+    private static final long PING_TIMEOUT_MS = 30000;
+    // -Dhalma.nio.maxPendingBytes: bytes aguardando escrita por conexão antes de ela ser fechada
+    private static final int MAX_PENDENTE = Integer.getInteger("halma.nio.maxPendingBytes", 256 * 1024);
+
+    private final IHalmaServer server;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<Connection> pendentesEscrita = new ConcurrentLinkedQueue<>();
+    private final ExecutorService despachoExecutor = criarPoolDeDespacho();
+
+    NioServerTransport(IHalmaServer server, String bindAddress, int port) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress == null ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    private static ExecutorService criarPoolDeDespacho() {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "halma-nio-despacho-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Frames cujo tratamento espera o ator da partida (mailbox.pedir)
+    private static boolean bloqueante(byte tipo) {
+        switch (tipo) {
+            case NioProtocol.REGISTRAR:
+            case NioProtocol.ENTRAR:
+            case NioProtocol.REGISTRAR_IA:
+            case NioProtocol.ASSISTIR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void start() {
+        Thread t = new Thread(this, "halma-nio-selector");
+        t.setDaemon(false);
+        t.start();
+    }
+
+    int getPorta() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void run() {
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+                Connection c;
+                while ((c = pendentesEscrita.poll()) != null) {
+                    if (c.key.isValid()) c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) aceitar();
+                    else {
+                        Connection conn = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) conn.ler();
+                            if (key.isValid() && key.isWritable()) conn.escrever();
+                        } catch (IOException | RuntimeException e) {
+                            conn.fechar();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Erro no seletor NIO: " + e.getMessage());
+            }
+        }
+    }
+
+    private void aceitar() throws IOException {
+        SocketChannel ch = serverChannel.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection conn = new Connection(ch);
+        conn.key = ch.register(selector, SelectionKey.OP_READ, conn);
+    }
+
+    // Uma conexão de cliente. O proxy 'remoto' é o IHalmaClient entregue ao HalmaServer.
+    private final class Connection {
+        private final SocketChannel ch;
+        private SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocate(NioProtocol.MAX_FRAME + 4);
+        private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger bytesPendentes = new AtomicInteger(); // Bytes em 'out'
+        // Frames desta conexão tratados fora do seletor, em ordem
+        private final GameMailbox despacho = new GameMailbox(despachoExecutor, "Conexao NIO");
+        private final AtomicInteger emDespacho = new AtomicInteger(); // Entregues ao despacho e não concluídos
+        private final RemoteClient remoto = new RemoteClient(this);
+        private final IHalmaSpectator espectador = frames -> enviar(ByteBuffer.wrap(frames));
+        private volatile boolean fechada = false;
+
+        Connection(SocketChannel ch) {
+            this.ch = ch;
+        }
+
+        void ler() throws IOException {
+            int n = ch.read(in);
+            if (n < 0) {
+                fechar();
+                return;
+            }
+            in.flip();
+            ByteBuffer frame;
+            while ((frame = NioProtocol.proximoFrame(in)) != null) {
+                // Com algo ainda no despacho, os frames seguintes vão atrás dele para manter a ordem
+                if (bloqueante(frame.get(frame.position())) || emDespacho.get() > 0) despacharFora(frame);
+                else despachar(frame);
+            }
+            in.compact();
+        }
+
+        // O frame aponta para 'in', que é reaproveitado: vai uma cópia
+        private void despacharFora(ByteBuffer frame) {
+            ByteBuffer copia = ByteBuffer.allocate(frame.remaining());
+            copia.put(frame).flip();
+            emDespacho.incrementAndGet();
+            despacho.executar(() -> {
+                try {
+                    if (!fechada) despachar(copia);
+                } catch (RemoteException | RuntimeException e) {
+                    fechar();
+                } finally {
+                    emDespacho.decrementAndGet();
+                }
+            });
+        }
+
+        void escrever() throws IOException {
+            ByteBuffer b;
+            while ((b = out.peek()) != null) {
+                ch.write(b);
+                if (b.hasRemaining()) return; // Socket cheio: continua no próximo OP_WRITE
+                out.poll();
+                bytesPendentes.addAndGet(-b.limit());
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (!out.isEmpty()) key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        // Chamado de qualquer thread (callbacks); a escrita em si acontece no seletor.
+        // Os frames começam na posição 0, então limit() é o tamanho de cada um.
+        void enviar(ByteBuffer frame) throws RemoteException {
+            if (fechada) throw new RemoteException("Conexao NIO fechada");
+            if (bytesPendentes.addAndGet(frame.limit()) > MAX_PENDENTE) {
+                fechar();
+                throw new RemoteException("Cliente NIO nao esta lendo (" + MAX_PENDENTE + " bytes pendentes)");
+            }
+            out.add(frame);
+            pendentesEscrita.add(this);
+            selector.wakeup();
+        }
+
+        void fechar() {
+            if (fechada) return;
+            fechada = true;
+            if (key != null) key.cancel();
+            try {
+                ch.close();
+            } catch (IOException e) {
+                // Ignora
+            }
+            remoto.falharPings();
+        }
+
+        private void despachar(ByteBuffer f) throws RemoteException {
+            byte tipo = f.get();
+            switch (tipo) {
+                case NioProtocol.REGISTRAR: {
+                    int reqId = f.getInt();
+                    String nome = NioProtocol.getString(f);
+                    responderRegistro(reqId, server.registrarCliente(remoto, nome));
+                    break;
+                }
+                case NioProtocol.ENTRAR: {
+                    int reqId = f.getInt();
+                    String nome = NioProtocol.getString(f);
+                    int gameId = f.getInt();
+                    responderRegistro(reqId, server.entrarNaPartida(remoto, nome, gameId));
+                    break;
+                }
+                case NioProtocol.REGISTRAR_IA: {
+                    int reqId = f.getInt();
+                    String nome = NioProtocol.getString(f);
+                    responderRegistro(reqId, server.registrarContraComputador(remoto, nome));
+                    break;
+                }
+                case NioProtocol.MOVIMENTO: {
+                    int gameId = f.getInt();
+                    int playerId = f.getInt();
+                    long sessao = f.getLong();
+                    server.enviarMovimento(gameId, playerId, sessao, NioProtocol.getPontos(f));
+                    break;
+                }
+                case NioProtocol.CHAT: {
+                    int gameId = f.getInt();
+                    int playerId = f.getInt();
+                    long sessao = f.getLong();
+                    server.enviarChat(gameId, playerId, sessao, NioProtocol.getString(f));
+                    break;
+                }
+                case NioProtocol.DESCONECTAR:
+                    server.desconectar(f.getInt(), f.getInt(), f.getLong());
+                    break;
+                case NioProtocol.REINICIO:
+                    server.solicitarReinicio(f.getInt(), f.getInt(), f.getLong());
+                    break;
+                case NioProtocol.TABULEIRO:
+                    server.solicitarTabuleiro(f.getInt(), f.getInt(), f.getLong());
+                    break;
+                case NioProtocol.ASSISTIR: {
+                    int reqId = f.getInt();
+                    int gameId = f.getInt();
+                    responderRegistro(reqId, new Registration(gameId, server.assistirPartida(espectador, gameId)));
+                    break;
+                }
+                case NioProtocol.DEIXAR:
+                    server.deixarDeAssistir(f.getInt(), f.getInt());
+                    break;
+                case NioProtocol.PONG:
+                    remoto.pong(f.getLong());
+                    break;
+                default:
+                    throw new IllegalStateException("Tipo de frame desconhecido: " + tipo);
+            }
+        }
+
+        private void responderRegistro(int reqId, Registration r) throws RemoteException {
+            enviar(new NioProtocol.Encoder(NioProtocol.REGISTRO)
+                    .putInt(reqId).putInt(r.getGameId()).putInt(r.getPlayerId()).putLong(r.getSessao()).finish());
+        }
+    }
+
+    // IHalmaClient do lado do servidor: cada callback vira um frame na fila da conexão
+    private static final class RemoteClient implements IHalmaClient {
+        private final Connection conn;
+        private final AtomicLong pingSeq = new AtomicLong();
+        private final Map<Long, CompletableFuture<Void>> pings = new ConcurrentHashMap<>();
+
+        RemoteClient(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public void receberMensagem(String msg) throws RemoteException {
+            conn.enviar(new NioProtocol.Encoder(NioProtocol.MENSAGEM).putString(msg).finish());
+        }
+
+        @Override
+        public void atualizarEstado(GameStateEvent evento) throws RemoteException {
+            conn.enviar(new NioProtocol.Encoder(NioProtocol.ESTADO).putEvento(evento).finish());
+        }
+
+        @Override
+        public void notificarInicioJogo(String p1Name, String p2Name) throws RemoteException {
+            conn.enviar(new NioProtocol.Encoder(NioProtocol.INICIO).putString(p1Name).putString(p2Name).finish());
+        }
+
+        // Síncrono como no RMI: espera o PONG correspondente
+        @Override
+        public void ping() throws RemoteException {
+            long seq = pingSeq.incrementAndGet();
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            pings.put(seq, f);
+            try {
+                conn.enviar(new NioProtocol.Encoder(NioProtocol.PING).putLong(seq).finish());
+                f.get(PING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (RemoteException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RemoteException("Ping NIO sem resposta", e);
+            } finally {
+                pings.remove(seq);
+            }
+        }
+
+        void pong(long seq) {
+            CompletableFuture<Void> f = pings.get(seq);
+            if (f != null) f.complete(null);
+        }
+
+        void falharPings() {
+            for (CompletableFuture<Void> f : pings.values()) f.completeExceptionally(new ClosedChannelException());
+        }
+    }
+}
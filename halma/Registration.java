@@ -0,0 +1,41 @@
+package halma;
+
+import java.io.Serializable;
+
+// Resultado do registro de um cliente: a partida (sala) em que entrou, o assento ocupado e a sessão.
+// playerId == -1 indica que não foi possível entrar (partida cheia ou inexistente).
+// A sessão é um número aleatório que só o dono do assento conhece: as chamadas de jogo (lance, chat,
+// reinício, tabuleiro, saída) a repetem e o servidor ignora as que não batem com o assento.
+public final class Registration implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final int gameId;
+    private final int playerId;
+    private final long sessao;
+
+    public Registration(int gameId, int playerId) {
+        this(gameId, playerId, 0L);
+    }
+
+    public Registration(int gameId, int playerId, long sessao) {
+        this.gameId = gameId;
+        this.playerId = playerId;
+        this.sessao = sessao;
+    }
+
+    public int getGameId() {
+        return gameId;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public long getSessao() {
+        return sessao;
+    }
+
+    public boolean isAceito() {
+        return playerId > 0;
+    }
+}
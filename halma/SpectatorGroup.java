@@ -0,0 +1,134 @@
+package halma;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Espectadores de uma partida. O ator da partida só codifica cada evento uma vez (frame do
+// NioProtocol) e o enfileira aqui em O(1); a distribuição para as SpectatorOutbox roda numa tarefa do
+// pool do CallbackDispatcher, fora do ator, na mesma ordem. Entradas e saídas passam pela mesma fila,
+// então quem entra recebe o snapshot e, depois dele, exatamente os eventos seguintes.
+// Um espectador com a fila cheia deixa de receber eventos e espera um snapshot novo; o snapshot é tirado
+// dentro do ator e entra na mesma fila, logo depois do último evento que ele já contém.
+class SpectatorGroup {
+    private final CallbackDispatcher dispatcher;
+    private final int capacity;
+    private final Executor ator;             // Caixa de mensagens da partida
+    private final Supplier<byte[]> snapshot; // Snapshot codificado da partida; só chamado no ator
+
+    // Acessados só pela tarefa de distribuição (uma por vez)
+    private final Map<Integer, SpectatorOutbox> outboxes = new LinkedHashMap<>();
+    private final Set<SpectatorOutbox> dessincronizados = new HashSet<>();
+    private boolean snapshotPedido = false;
+
+    private final ArrayDeque<Runnable> tarefas = new ArrayDeque<>();
+    private boolean agendado = false;
+    private int proximoId = 1;
+    private volatile int tamanho = 0;
+
+    SpectatorGroup(CallbackDispatcher dispatcher, int capacity, Executor ator, Supplier<byte[]> snapshot) {
+        this.dispatcher = dispatcher;
+        this.capacity = capacity;
+        this.ator = ator;
+        this.snapshot = snapshot;
+    }
+
+    // Sem espectadores a partida nem codifica os eventos
+    boolean isVazio() {
+        return tamanho == 0;
+    }
+
+    int getTamanho() {
+        return tamanho;
+    }
+
+    // 'inicial' são os frames que o espectador recebe antes de qualquer evento (o snapshot atual)
+    synchronized int adicionar(IHalmaSpectator espectador, byte[] inicial) {
+        int id = proximoId++;
+        tamanho++;
+        SpectatorOutbox outbox = new SpectatorOutbox(dispatcher, espectador, () -> remover(id), capacity);
+        dispatcher.vigiar(outbox);
+        executarEmOrdem(() -> {
+            outbox.oferecer(inicial);
+            outboxes.put(id, outbox);
+        });
+        return id;
+    }
+
+    synchronized void remover(int id) {
+        executarEmOrdem(() -> {
+            SpectatorOutbox o = outboxes.remove(id);
+            if (o != null) {
+                dessincronizados.remove(o);
+                o.fechar();
+                synchronized (this) {
+                    tamanho--;
+                }
+            }
+        });
+    }
+
+    synchronized void publicar(byte[] frame) {
+        executarEmOrdem(() -> distribuir(frame));
+    }
+
+    synchronized void fechar() {
+        executarEmOrdem(() -> {
+            for (SpectatorOutbox o : outboxes.values()) o.fechar();
+            outboxes.clear();
+            dessincronizados.clear();
+            synchronized (this) {
+                tamanho = 0;
+            }
+        });
+    }
+
+    // O mesmo array vai para todas as filas; quem está com a fila cheia para de receber até o snapshot
+    private void distribuir(byte[] frame) {
+        for (SpectatorOutbox o : outboxes.values()) {
+            if (dessincronizados.contains(o) || o.oferecer(frame)) continue;
+            dessincronizados.add(o);
+            if (!snapshotPedido) {
+                snapshotPedido = true;
+                // Tirado no ator: nenhum evento publicado depois dele fica de fora, nenhum anterior se repete
+                ator.execute(() -> {
+                    byte[] s = snapshot.get();
+                    executarEmOrdem(() -> instalarSnapshot(s));
+                });
+            }
+        }
+    }
+
+    // O snapshot substitui tudo o que estava pendente na fila de cada espectador dessincronizado
+    private void instalarSnapshot(byte[] s) {
+        snapshotPedido = false;
+        for (SpectatorOutbox o : dessincronizados) o.ressincronizar(s);
+        dessincronizados.clear();
+    }
+
+    private synchronized void executarEmOrdem(Runnable tarefa) {
+        tarefas.offer(tarefa);
+        if (!agendado) {
+            agendado = true;
+            dispatcher.agendar(this::drenar);
+        }
+    }
+
+    private void drenar() {
+        while (true) {
+            Runnable t;
+            synchronized (this) {
+                t = tarefas.poll();
+                if (t == null) {
+                    agendado = false;
+                    return;
+                }
+            }
+            t.run();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package halma;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+
+// Fila de saída de um espectador. Guarda frames já codificados (os mesmos arrays para todos os espectadores
+// da partida) e entrega tudo o que estiver pendente numa única chamada receberEventos, concatenando só
+// quando há mais de um frame. Nunca bloqueia quem enfileira: se a fila enche, o espectador é
+// ressincronizado com um snapshot no lugar do histórico perdido.
+class SpectatorOutbox implements CallbackDispatcher.Vigiada {
+    private static final String METODO = "receberEventos";
+
+    private final CallbackDispatcher dispatcher;
+    private final IHalmaSpectator espectador;
+    private final Runnable onFalha;
+    private final int capacity;
+
+    private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+    private int bytesPendentes = 0;
+    private boolean agendado = false;
+    private boolean fechado = false;
+    private volatile long chamadaIniciadaEm = 0L;
+
+    SpectatorOutbox(CallbackDispatcher dispatcher, IHalmaSpectator espectador, Runnable onFalha, int capacity) {
+        this.dispatcher = dispatcher;
+        this.espectador = espectador;
+        this.onFalha = onFalha;
+        this.capacity = capacity;
+    }
+
+    // Retorna false se a fila está cheia (o frame não foi aceito)
+    synchronized boolean oferecer(byte[] frame) {
+        if (fechado) return true;
+        if (queue.size() >= capacity) return false;
+        queue.offer(frame);
+        bytesPendentes += frame.length;
+        agendar();
+        return true;
+    }
+
+    // Descarta o que estava pendente e recomeça pelo snapshot
+    synchronized void ressincronizar(byte[] snapshot) {
+        if (fechado) return;
+        queue.clear();
+        queue.offer(snapshot);
+        bytesPendentes = snapshot.length;
+        agendar();
+    }
+
+    private void agendar() {
+        if (!agendado) {
+            agendado = true;
+            dispatcher.agendar(this::drenar);
+        }
+    }
+
+    private void drenar() {
+        byte[] lote;
+        synchronized (this) {
+            if (fechado || queue.isEmpty()) {
+                agendado = false;
+                return;
+            }
+            if (queue.size() == 1) {
+                lote = queue.poll(); // Caso comum: o array compartilhado vai direto, sem cópia
+            } else {
+                lote = new byte[bytesPendentes];
+                int off = 0;
+                for (byte[] f; (f = queue.poll()) != null; off += f.length) {
+                    System.arraycopy(f, 0, lote, off, f.length);
+                }
+            }
+            bytesPendentes = 0;
+        }
+        HalmaMetrics metrics = dispatcher.getMetrics();
+        chamadaIniciadaEm = System.nanoTime();
+        try {
+            espectador.receberEventos(lote);
+        } catch (RemoteException | RuntimeException e) {
+            chamadaIniciadaEm = 0L;
+            if (!isFechado()) metrics.callbackFalha(METODO);
+            falhar();
+            return;
+        }
+        chamadaIniciadaEm = 0L;
+        metrics.callbackOk(METODO);
+        synchronized (this) {
+            if (fechado || queue.isEmpty()) {
+                agendado = false;
+                return;
+            }
+        }
+        // Chegou mais coisa durante a chamada: reagenda (outra tarefa, para não monopolizar a thread)
+        dispatcher.agendar(this::drenar);
+    }
+
+    @Override
+    public boolean isChamadaExpirada(long now, long timeoutNanos) {
+        long inicio = chamadaIniciadaEm;
+        return inicio != 0L && now - inicio > timeoutNanos;
+    }
+
+    @Override
+    public void expirar() {
+        if (isFechado()) return;
+        dispatcher.getMetrics().callbackTimeout(METODO);
+        falhar();
+    }
+
+    private synchronized boolean isFechado() {
+        return fechado;
+    }
+
+    private void falhar() {
+        synchronized (this) {
+            if (fechado) return;
+            fechado = true;
+            queue.clear();
+        }
+        dispatcher.remover(this);
+        dispatcher.agendar(onFalha);
+    }
+
+    void fechar() {
+        synchronized (this) {
+            fechado = true;
+            queue.clear();
+        }
+        dispatcher.remover(this);
+    }
+}
@@ -0,0 +1,87 @@
+package halma;
+
+// Tabela de transposição de tamanho fixo para o HalmaEngine.
+// Cada entrada ocupa dois longs: 'dados' (valor, profundidade, tipo, lance, geração) e 'chaves' = hash ^ dados.
+// Sem locks: se duas threads escreverem a mesma entrada ao mesmo tempo, a combinação rasgada não
+// confere com o hash na leitura e é tratada como ausente. Assim a tabela pode ser compartilhada por
+// várias buscas simultâneas (partidas diferentes e, depois, threads da mesma busca).
+//
+// Cada balde tem duas entradas: a primeira guarda a de maior profundidade (substituída só por
+// profundidade igual/maior ou por entrada de uma busca antiga) e a segunda é substituída sempre.
+final class TranspositionTable {
+    static final int EXATO = 1;
+    static final int INFERIOR = 2; // Valor >= armazenado (corte beta)
+    static final int SUPERIOR = 3; // Valor <= armazenado (nenhum lance passou de alfa)
+
+    static final int SEM_LANCE = -1;
+
+    private final long[] chaves;
+    private final long[] dados;
+    private final int mascara;
+
+    TranspositionTable(int bits) {
+        int tamanho = 1 << bits;
+        chaves = new long[tamanho];
+        dados = new long[tamanho];
+        mascara = (tamanho - 1) & ~1; // Índice do primeiro slot do balde
+    }
+
+    // Retorna os dados da entrada do hash, ou 0 se não houver
+    long consultar(long hash) {
+        int i = (int) hash & mascara;
+        long d = dados[i];
+        if ((chaves[i] ^ d) == hash && d != 0) return d;
+        d = dados[i + 1];
+        if ((chaves[i + 1] ^ d) == hash && d != 0) return d;
+        return 0L;
+    }
+
+    void gravar(long hash, int valor, int profundidade, int tipo, int lance, int geracao) {
+        long d = empacotar(valor, profundidade, tipo, lance, geracao);
+        int i = (int) hash & mascara;
+        long atual = dados[i];
+        if ((chaves[i] ^ atual) == hash || profundidade >= profundidade(atual) || geracao(atual) != geracao) {
+            dados[i] = d;
+            chaves[i] = hash ^ d;
+        } else {
+            dados[i + 1] = d;
+            chaves[i + 1] = hash ^ d;
+        }
+    }
+
+    void limpar() {
+        java.util.Arrays.fill(chaves, 0L);
+        java.util.Arrays.fill(dados, 0L);
+    }
+
+    // --- Layout dos dados: valor(16) | profundidade(8) | tipo(2) | lance(13) | geração(8) ---
+
+    private static long empacotar(int valor, int profundidade, int tipo, int lance, int geracao) {
+        return (valor & 0xFFFFL)
+                | ((long) (profundidade & 0xFF) << 16)
+                | ((long) tipo << 24)
+                | ((long) ((lance + 1) & 0x1FFF) << 26)
+                | ((long) (geracao & 0xFF) << 39);
+    }
+
+    static int valor(long d) {
+        return (short) (d & 0xFFFF);
+    }
+
+    static int profundidade(long d) {
+        return (int) (d >>> 16) & 0xFF;
+    }
+
+    static int tipo(long d) {
+        return (int) (d >>> 24) & 0x3;
+    }
+
+    // Lance codificado como (origem << 6) | destino, ou SEM_LANCE
+    static int lance(long d) {
+        return ((int) (d >>> 26) & 0x1FFF) - 1;
+    }
+
+    static int geracao(long d) {
+        return (int) (d >>> 39) & 0xFF;
+    }
+}